@@ -41,6 +41,8 @@ public class CardboardDeviceParams{
     private FieldOfView mLeftEyeMaxFov;
     private boolean mHasMagnet;
     private Distortion mDistortion;
+    private Distortion mDistortionRed;
+    private Distortion mDistortionBlue;
     
     public CardboardDeviceParams() {
         super();
@@ -71,6 +73,12 @@ public class CardboardDeviceParams{
         if (this.mDistortion == null) {
             this.mDistortion = new Distortion();
         }
+        if (params.distortionCoefficientsRed != null && params.distortionCoefficientsRed.length > 0) {
+            this.mDistortionRed = Distortion.parseFromProtobuf(params.distortionCoefficientsRed);
+        }
+        if (params.distortionCoefficientsBlue != null && params.distortionCoefficientsBlue.length > 0) {
+            this.mDistortionBlue = Distortion.parseFromProtobuf(params.distortionCoefficientsBlue);
+        }
         this.mHasMagnet = params.getHasMagnet();
     }
     
@@ -198,6 +206,12 @@ public class CardboardDeviceParams{
         params.setScreenToLensDistance(this.mScreenToLensDistance);
         params.leftEyeFieldOfViewAngles = this.mLeftEyeMaxFov.toProtobuf();
         params.distortionCoefficients = this.mDistortion.toProtobuf();
+        if (this.mDistortionRed != null) {
+            params.distortionCoefficientsRed = this.mDistortionRed.toProtobuf();
+        }
+        if (this.mDistortionBlue != null) {
+            params.distortionCoefficientsBlue = this.mDistortionBlue.toProtobuf();
+        }
         if (this.mHasMagnet) {
             params.setHasMagnet(this.mHasMagnet);
         }
@@ -254,6 +268,23 @@ public class CardboardDeviceParams{
         return this.mDistortion;
     }
     
+    public Distortion getDistortionRed() {
+        return (this.mDistortionRed != null) ? this.mDistortionRed : this.mDistortion;
+    }
+    
+    public Distortion getDistortionBlue() {
+        return (this.mDistortionBlue != null) ? this.mDistortionBlue : this.mDistortion;
+    }
+    
+    public void setChannelDistortions(final Distortion distortionRed, final Distortion distortionBlue) {
+        this.mDistortionRed = ((distortionRed != null) ? new Distortion(distortionRed) : null);
+        this.mDistortionBlue = ((distortionBlue != null) ? new Distortion(distortionBlue) : null);
+    }
+    
+    public boolean hasChannelDistortions() {
+        return !this.getDistortionRed().equals(this.mDistortion) || !this.getDistortionBlue().equals(this.mDistortion);
+    }
+    
     public FieldOfView getLeftEyeMaxFov() {
         return this.mLeftEyeMaxFov;
     }
@@ -278,7 +309,7 @@ public class CardboardDeviceParams{
             return false;
         }
         final CardboardDeviceParams o = (CardboardDeviceParams)other;
-        return this.mVendor.equals(o.mVendor) && this.mModel.equals(o.mModel) && this.mInterLensDistance == o.mInterLensDistance && this.mVerticalDistanceToLensCenter == o.mVerticalDistanceToLensCenter && this.mScreenToLensDistance == o.mScreenToLensDistance && this.mLeftEyeMaxFov.equals(o.mLeftEyeMaxFov) && this.mDistortion.equals(o.mDistortion) && this.mHasMagnet == o.mHasMagnet;
+        return this.mVendor.equals(o.mVendor) && this.mModel.equals(o.mModel) && this.mInterLensDistance == o.mInterLensDistance && this.mVerticalDistanceToLensCenter == o.mVerticalDistanceToLensCenter && this.mScreenToLensDistance == o.mScreenToLensDistance && this.mLeftEyeMaxFov.equals(o.mLeftEyeMaxFov) && this.mDistortion.equals(o.mDistortion) && this.getDistortionRed().equals(o.getDistortionRed()) && this.getDistortionBlue().equals(o.getDistortionBlue()) && this.mHasMagnet == o.mHasMagnet;
     }
     
     @Override
@@ -291,7 +322,16 @@ public class CardboardDeviceParams{
         final String value3 = String.valueOf(String.valueOf(this.mLeftEyeMaxFov.toString().replace("\n", "\n  ")));
         final StringBuilder append4 = append3.append(new StringBuilder(22 + value3.length()).append("  left_eye_max_fov: ").append(value3).append(",\n").toString());
         final String value4 = String.valueOf(String.valueOf(this.mDistortion.toString().replace("\n", "\n  ")));
-        return append4.append(new StringBuilder(16 + value4.length()).append("  distortion: ").append(value4).append(",\n").toString()).append(new StringBuilder(17).append("  magnet: ").append(this.mHasMagnet).append(",\n").toString()).append("}\n").toString();
+        final StringBuilder append5 = append4.append(new StringBuilder(16 + value4.length()).append("  distortion: ").append(value4).append(",\n").toString());
+        if (this.mDistortionRed != null) {
+            final String value5 = String.valueOf(String.valueOf(this.mDistortionRed.toString().replace("\n", "\n  ")));
+            append5.append(new StringBuilder(20 + value5.length()).append("  distortion_red: ").append(value5).append(",\n").toString());
+        }
+        if (this.mDistortionBlue != null) {
+            final String value6 = String.valueOf(String.valueOf(this.mDistortionBlue.toString().replace("\n", "\n  ")));
+            append5.append(new StringBuilder(21 + value6.length()).append("  distortion_blue: ").append(value6).append(",\n").toString());
+        }
+        return append5.append(new StringBuilder(17).append("  magnet: ").append(this.mHasMagnet).append(",\n").toString()).append("}\n").toString();
     }
     
     private void setDefaultValues() {
@@ -303,6 +343,8 @@ public class CardboardDeviceParams{
         this.mLeftEyeMaxFov = new FieldOfView();
         this.mHasMagnet = true;
         this.mDistortion = new Distortion();
+        this.mDistortionRed = null;
+        this.mDistortionBlue = null;
     }
     
     private void copyFrom(final CardboardDeviceParams params) {
@@ -314,6 +356,8 @@ public class CardboardDeviceParams{
         this.mLeftEyeMaxFov = new FieldOfView(params.mLeftEyeMaxFov);
         this.mHasMagnet = params.mHasMagnet;
         this.mDistortion = new Distortion(params.mDistortion);
+        this.mDistortionRed = ((params.mDistortionRed != null) ? new Distortion(params.mDistortionRed) : null);
+        this.mDistortionBlue = ((params.mDistortionBlue != null) ? new Distortion(params.mDistortionBlue) : null);
     }
     
     static {
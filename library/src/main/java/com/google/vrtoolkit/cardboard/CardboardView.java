@@ -1,34 +1,57 @@
 package com.google.vrtoolkit.cardboard;
 
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.Matrix;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
+import android.view.WindowManager;
 
 import com.google.vrtoolkit.cardboard.proto.Phone;
 import com.google.vrtoolkit.cardboard.sensors.HeadTracker;
 
+import java.io.File;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 public class CardboardView extends GLSurfaceView {
     private static final String TAG = "CardboardView";
+    private static final long SHUTDOWN_TIMEOUT_MS = 1000L;
     private RendererHelper mRendererHelper;
     private HeadTracker mHeadTracker;
     private HeadMountedDisplayManager mHmdManager;
     private UiLayer mUiLayer;
-    private CountDownLatch mShutdownLatch;
+    private ProgramCache mProgramCache;
+    private GLResourceRegistry mResourceRegistry;
+    private EGLHelper.ContextFactory mEGLContextFactory;
+    private ShutdownRequest mShutdownRequest;
     private boolean mVRMode;
     private boolean mRendererSet;
     private volatile boolean mRestoreGLStateEnabled;
     private volatile boolean mDistortionCorrectionEnabled;
     private volatile boolean mChromaticAberrationCorrectionEnabled;
     private volatile boolean mVignetteEnabled;
+    private volatile boolean mCompactVertexFormatEnabled;
+    private volatile int mMultisampleCount;
+    private volatile int mDepthStencilFormat;
+    private volatile boolean mStaticGLStateEnabled;
+    private volatile boolean mStaticGLStateVerificationEnabled;
+    private volatile boolean mSinglePassStereoSupported;
+    private volatile boolean mFoveatedRenderingEnabled;
+    private volatile boolean mDynamicResolutionScaleEnabled;
+    private volatile boolean mHighPriorityContextEnabled;
+    private volatile int mSwapInterval;
+    private volatile boolean mPresentationTimeEnabled;
+    private boolean mWarmResumeEnabled;
+    private long mPhoneParamsModified;
     
     public CardboardView(final Context context) {
         super(context);
@@ -38,6 +61,8 @@ public class CardboardView extends GLSurfaceView {
         this.mDistortionCorrectionEnabled = true;
         this.mChromaticAberrationCorrectionEnabled = false;
         this.mVignetteEnabled = true;
+        this.mDepthStencilFormat = DepthStencilFormat.DEPTH_16;
+        this.mSwapInterval = 1;
         this.init(context);
     }
     
@@ -49,6 +74,8 @@ public class CardboardView extends GLSurfaceView {
         this.mDistortionCorrectionEnabled = true;
         this.mChromaticAberrationCorrectionEnabled = false;
         this.mVignetteEnabled = true;
+        this.mDepthStencilFormat = DepthStencilFormat.DEPTH_16;
+        this.mSwapInterval = 1;
         this.init(context);
     }
     
@@ -65,10 +92,18 @@ public class CardboardView extends GLSurfaceView {
         this.setRenderer((renderer != null) ? new StereoRendererHelper(renderer) : ((Renderer)null));
     }
     
+    public boolean isSinglePassStereoSupported() {
+        return this.mSinglePassStereoSupported;
+    }
+    
     public void getCurrentEyeParams(final HeadTransform head, final Eye leftEye, final Eye rightEye, final Eye monocular) {
         this.mRendererHelper.getCurrentEyeParams(head, leftEye, rightEye, monocular);
     }
     
+    public long getCurrentFrameIndex() {
+        return this.mRendererHelper.getCurrentFrameIndex();
+    }
+    
     public void setVRModeEnabled(final boolean enabled) {
         this.mVRMode = enabled;
         this.mRendererHelper.setVRModeEnabled(enabled);
@@ -107,6 +142,28 @@ public class CardboardView extends GLSurfaceView {
         return this.mRestoreGLStateEnabled;
     }
     
+    public void setStaticGLStateEnabled(final boolean enabled) {
+        this.mStaticGLStateEnabled = enabled;
+        this.mRendererHelper.setStaticGLStateEnabled(enabled);
+    }
+    
+    public boolean getStaticGLStateEnabled() {
+        return this.mStaticGLStateEnabled;
+    }
+    
+    public void setStaticGLStateVerificationEnabled(final boolean enabled) {
+        this.mStaticGLStateVerificationEnabled = enabled;
+        this.mRendererHelper.setStaticGLStateVerificationEnabled(enabled);
+    }
+    
+    public boolean getStaticGLStateVerificationEnabled() {
+        return this.mStaticGLStateVerificationEnabled;
+    }
+    
+    public void invalidateStaticGLState() {
+        this.mRendererHelper.invalidateStaticGLState();
+    }
+    
     public void setChromaticAberrationCorrectionEnabled(final boolean enabled) {
         this.mChromaticAberrationCorrectionEnabled = enabled;
         this.mRendererHelper.setChromaticAberrationCorrectionEnabled(enabled);
@@ -125,10 +182,71 @@ public class CardboardView extends GLSurfaceView {
         return this.mVignetteEnabled;
     }
     
+    public void setCompactVertexFormatEnabled(final boolean enabled) {
+        this.mCompactVertexFormatEnabled = enabled;
+        this.mRendererHelper.setCompactVertexFormatEnabled(enabled);
+    }
+    
+    public boolean getCompactVertexFormatEnabled() {
+        return this.mCompactVertexFormatEnabled;
+    }
+    
+    public void setMultisampleCount(final int samples) {
+        if (samples < 0) {
+            throw new IllegalArgumentException("Sample count must be non-negative");
+        }
+        this.mMultisampleCount = samples;
+        this.mRendererHelper.setMultisampleCount(samples);
+    }
+    
+    public int getMultisampleCount() {
+        return this.mMultisampleCount;
+    }
+    
+    public void setDepthStencilFormat(final int depthStencilFormat) {
+        if (depthStencilFormat < DepthStencilFormat.NONE || depthStencilFormat > DepthStencilFormat.DEPTH_24_STENCIL_8) {
+            throw new IllegalArgumentException("Invalid depth/stencil format");
+        }
+        this.mDepthStencilFormat = depthStencilFormat;
+        this.mRendererHelper.setDepthStencilFormat(depthStencilFormat);
+    }
+    
+    public int getDepthStencilFormat() {
+        return this.mDepthStencilFormat;
+    }
+    
+    public void setFoveatedRenderingEnabled(final boolean enabled) {
+        this.mFoveatedRenderingEnabled = enabled;
+        this.mRendererHelper.setFoveatedRenderingEnabled(enabled);
+    }
+    
+    public boolean getFoveatedRenderingEnabled() {
+        return this.mFoveatedRenderingEnabled;
+    }
+    
+    public void setFoveationParameters(final float fovealFraction, final float peripheralResolutionScale) {
+        if (fovealFraction <= 0.0f || fovealFraction > 1.0f) {
+            throw new IllegalArgumentException("Foveal fraction must be in (0, 1]");
+        }
+        if (peripheralResolutionScale <= 0.0f || peripheralResolutionScale > 1.0f) {
+            throw new IllegalArgumentException("Peripheral resolution scale must be in (0, 1]");
+        }
+        this.mRendererHelper.setFoveationParameters(fovealFraction, peripheralResolutionScale);
+    }
+    
     public void setNeckModelEnabled(final boolean enabled) {
         this.mHeadTracker.setNeckModelEnabled(enabled);
     }
     
+    public void setWarmResumeEnabled(final boolean enabled) {
+        this.mWarmResumeEnabled = enabled;
+        this.mHeadTracker.setWarmResumeEnabled(enabled);
+    }
+    
+    public boolean getWarmResumeEnabled() {
+        return this.mWarmResumeEnabled;
+    }
+    
     public void updateCardboardDeviceParams(final CardboardDeviceParams cardboardDeviceParams) {
         if (this.mHmdManager.updateCardboardDeviceParams(cardboardDeviceParams)) {
             this.mRendererHelper.setCardboardDeviceParams(this.getCardboardDeviceParams());
@@ -174,19 +292,97 @@ public class CardboardView extends GLSurfaceView {
         this.mRendererHelper.renderUiLayer();
     }
     
+    public void setExternalTextureSource(final ExternalTextureSource source, final int layout) {
+        if (layout < VideoLayout.MONO || layout > VideoLayout.STEREO_LEFT_RIGHT) {
+            throw new IllegalArgumentException("Invalid video layout");
+        }
+        this.mRendererHelper.setExternalTextureSource(source, layout);
+    }
+    
     public void setDistortionCorrectionScale(final float scale) {
         this.mRendererHelper.setDistortionCorrectionScale(scale);
     }
     
+    public void setDynamicResolutionScaleEnabled(final boolean enabled) {
+        this.mDynamicResolutionScaleEnabled = enabled;
+        this.mRendererHelper.setDynamicResolutionScaleEnabled(enabled, this.getDisplayFrameTimeNanos());
+    }
+    
+    public boolean getDynamicResolutionScaleEnabled() {
+        return this.mDynamicResolutionScaleEnabled;
+    }
+    
+    public void setDynamicResolutionScaleRange(final float minScale, final float maxScale) {
+        if (minScale <= 0.0f || minScale > maxScale || maxScale > 1.0f) {
+            throw new IllegalArgumentException("Dynamic resolution scale range must satisfy 0 < min <= max <= 1");
+        }
+        this.mRendererHelper.setDynamicResolutionScaleRange(minScale, maxScale);
+    }
+    
+    public void setHighPriorityContextEnabled(final boolean enabled) {
+        if (this.mRendererSet) {
+            throw new IllegalStateException("The context priority must be set before the renderer");
+        }
+        this.mHighPriorityContextEnabled = enabled;
+        this.mEGLContextFactory.setHighPriority(enabled);
+    }
+    
+    public int getLiveGLResourceCount(final int type) {
+        return this.mResourceRegistry.getLiveCount(type);
+    }
+    
+    public long getLiveGLResourceBytes() {
+        return this.mResourceRegistry.getLiveBytes();
+    }
+    
+    public boolean getHighPriorityContextEnabled() {
+        return this.mHighPriorityContextEnabled;
+    }
+    
+    public void setSwapInterval(final int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Swap interval must be non-negative");
+        }
+        this.mSwapInterval = interval;
+        this.mRendererHelper.setSwapInterval(interval);
+    }
+    
+    public int getSwapInterval() {
+        return this.mSwapInterval;
+    }
+    
+    public void setPresentationTimeEnabled(final boolean enabled) {
+        this.mPresentationTimeEnabled = enabled;
+        this.mRendererHelper.setPresentationTimeEnabled(enabled, this.getDisplayFrameTimeNanos());
+    }
+    
+    public boolean getPresentationTimeEnabled() {
+        return this.mPresentationTimeEnabled;
+    }
+    
+    public void setEGLContextClientVersion(final int version) {
+        super.setEGLContextClientVersion(version);
+        this.mEGLContextFactory.setClientVersion(version);
+    }
+    
+    private long getDisplayFrameTimeNanos() {
+        final float refreshRate = ((WindowManager)this.getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay().getRefreshRate();
+        return (long)(1.0E9f / ((refreshRate > 0.0f) ? refreshRate : 60.0f));
+    }
+    
     public void onResume() {
         this.mHmdManager.onResume();
         this.mRendererHelper.setCardboardDeviceParams(this.getCardboardDeviceParams());
         if (this.mRendererSet) {
             super.onResume();
         }
-        final Phone.PhoneParams phoneParams = PhoneParams.readFromExternalStorage();
-        if (phoneParams != null) {
-            this.mHeadTracker.setGyroBias(phoneParams.gyroBias);
+        final long phoneParamsModified = HeadMountedDisplayManager.getConfigFileModified("phone_params");
+        if (phoneParamsModified != this.mPhoneParamsModified) {
+            this.mPhoneParamsModified = phoneParamsModified;
+            final Phone.PhoneParams phoneParams = PhoneParams.readFromExternalStorage();
+            if (phoneParams != null) {
+                this.mHeadTracker.setGyroBias(phoneParams.gyroBias);
+            }
         }
         this.mHeadTracker.startTracking();
     }
@@ -211,51 +407,111 @@ public class CardboardView extends GLSurfaceView {
         throw new RuntimeException("Please use the CardboardView renderer interfaces");
     }
     
+    public void shutdownAsync(final ShutdownCallback callback) {
+        if (!this.mRendererSet) {
+            if (callback != null) {
+                callback.onShutdownComplete(ShutdownStatus.COMPLETED);
+            }
+            return;
+        }
+        if (this.mShutdownRequest != null) {
+            throw new IllegalStateException("Shutdown is already in progress");
+        }
+        final ShutdownRequest request = new ShutdownRequest(callback);
+        this.mShutdownRequest = request;
+        this.mRendererHelper.shutdown(request);
+    }
+    
     public void onDetachedFromWindow() {
-        if (this.mRendererSet && this.mShutdownLatch == null) {
-            this.mShutdownLatch = new CountDownLatch(1);
-            this.mRendererHelper.shutdown();
+        if (this.mRendererSet) {
+            if (this.mShutdownRequest == null) {
+                this.shutdownAsync(null);
+            }
+            final ShutdownRequest request = this.mShutdownRequest;
+            boolean completed = false;
             try {
-                this.mShutdownLatch.await();
+                completed = request.await(SHUTDOWN_TIMEOUT_MS);
+                if (!completed) {
+                    Log.w(TAG, "Timed out waiting for the renderer to shut down");
+                }
             }
             catch (InterruptedException e) {
                 final String s2 = "Interrupted during shutdown: ";
                 final String value = String.valueOf(e.toString());
                 Log.e(TAG, (value.length() != 0) ? s2.concat(value) : new String(s2));
             }
-            this.mShutdownLatch = null;
+            if (!completed) {
+                request.finish(ShutdownStatus.ABANDONED);
+            }
+            this.mShutdownRequest = null;
         }
         super.onDetachedFromWindow();
     }
     
     private void init(final Context context) {
-        this.setEGLContextClientVersion(2);
+        this.mEGLContextFactory = new EGLHelper.ContextFactory(2);
+        this.setEGLContextFactory(this.mEGLContextFactory);
         this.setPreserveEGLContextOnPause(true);
         this.mHeadTracker = HeadTracker.createFromContext(context);
         this.mHmdManager = new HeadMountedDisplayManager(context);
+        this.mProgramCache = new ProgramCache(new File(context.getCacheDir(), "cardboard_programs"));
+        this.mResourceRegistry = new GLResourceRegistry();
+        this.mStaticGLStateVerificationEnabled = ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
         this.mRendererHelper = new RendererHelper();
-        this.mUiLayer = new UiLayer(context);
+        this.mUiLayer = new UiLayer(context, this.mProgramCache, this.mResourceRegistry);
+        this.mUiLayer.setStaticGLStateVerificationEnabled(this.mStaticGLStateVerificationEnabled);
     }
     
     public boolean onTouchEvent(final MotionEvent e) {
         return this.mUiLayer.onTouchEvent(e) || super.onTouchEvent(e);
     }
     
+    static void translateHeadView(final float[] eyeView, final float[] headView, final float x) {
+        for (int column = 0; column < 16; column += 4) {
+            eyeView[column] = headView[column] + x * headView[column + 3];
+            eyeView[column + 1] = headView[column + 1];
+            eyeView[column + 2] = headView[column + 2];
+            eyeView[column + 3] = headView[column + 3];
+        }
+    }
+    
     private class RendererHelper implements GLSurfaceView.Renderer {
         private final HeadTransform mHeadTransform;
         private final Eye mMonocular;
         private final Eye mLeftEye;
         private final Eye mRightEye;
-        private final float[] mLeftEyeTranslate;
-        private final float[] mRightEyeTranslate;
+        private final Eye mLeftFovealEye;
+        private final Eye mRightFovealEye;
         private Renderer mRenderer;
         private boolean mSurfaceCreated;
+        private boolean mGLResourcesReleasePending;
         private HeadMountedDisplay mHmd;
         private DistortionRenderer mDistortionRenderer;
         private boolean mVRMode;
         private boolean mDistortionCorrectionEnabled;
         private boolean mProjectionChanged;
         private boolean mInvalidSurfaceSize;
+        private boolean mFoveatedFrame;
+        private ExternalTextureSource mExternalTextureSource;
+        private int mExternalTextureLayout;
+        private final float[] mExternalTextureTransform;
+        private boolean mVertexDistortionRenderer;
+        private boolean mVertexDistortionFrame;
+        private final VertexDistortion mLeftVertexDistortion;
+        private final VertexDistortion mRightVertexDistortion;
+        private final FrameParamsBuffer mFrameParamsBuffer;
+        private final RendererConfig mPendingConfig;
+        private final RendererConfig mAppliedConfig;
+        private final EGLHelper mEGLHelper;
+        private int mSwapInterval;
+        private boolean mPresentationTimeEnabled;
+        private long mPresentationFrameTimeNanos;
+        private long mFrameStartNanos;
+        private final FrameInfo mFrameInfo;
+        private final GpuFrameTimer mGpuFrameTimer;
+        private boolean mTimedRenderer;
+        private long mPreviousFrameStartNanos;
+        private long mPreviousFrameCpuNanos;
         
         public RendererHelper() {
             super();
@@ -264,12 +520,29 @@ public class CardboardView extends GLSurfaceView {
             this.mMonocular = new Eye(Eye.Type.MONOCULAR);
             this.mLeftEye = new Eye(Eye.Type.LEFT);
             this.mRightEye = new Eye(Eye.Type.RIGHT);
+            this.mLeftFovealEye = new Eye(Eye.Type.LEFT);
+            this.mRightFovealEye = new Eye(Eye.Type.RIGHT);
             this.updateFieldOfView(this.mLeftEye.getFov(), this.mRightEye.getFov());
-            (this.mDistortionRenderer = new DistortionRenderer()).setRestoreGLStateEnabled(CardboardView.this.mRestoreGLStateEnabled);
+            this.mGpuFrameTimer = new GpuFrameTimer();
+            (this.mDistortionRenderer = new DistortionRenderer(CardboardView.this.mResourceRegistry, this.mGpuFrameTimer)).setRestoreGLStateEnabled(CardboardView.this.mRestoreGLStateEnabled);
             this.mDistortionRenderer.setChromaticAberrationCorrectionEnabled(CardboardView.this.mChromaticAberrationCorrectionEnabled);
             this.mDistortionRenderer.setVignetteEnabled(CardboardView.this.mVignetteEnabled);
-            this.mLeftEyeTranslate = new float[16];
-            this.mRightEyeTranslate = new float[16];
+            this.mDistortionRenderer.setCompactVertexFormatEnabled(CardboardView.this.mCompactVertexFormatEnabled);
+            this.mDistortionRenderer.setMultisampleCount(CardboardView.this.mMultisampleCount);
+            this.mDistortionRenderer.setDepthStencilFormat(CardboardView.this.mDepthStencilFormat);
+            this.mDistortionRenderer.setFoveatedRenderingEnabled(CardboardView.this.mFoveatedRenderingEnabled);
+            this.mDistortionRenderer.setProgramCache(CardboardView.this.mProgramCache);
+            this.mDistortionRenderer.setStaticGLStateVerificationEnabled(CardboardView.this.mStaticGLStateVerificationEnabled);
+            this.mExternalTextureTransform = new float[16];
+            this.mLeftVertexDistortion = new VertexDistortion();
+            this.mRightVertexDistortion = new VertexDistortion();
+            this.mFrameParamsBuffer = new FrameParamsBuffer();
+            this.mPendingConfig = new RendererConfig();
+            this.mAppliedConfig = new RendererConfig();
+            this.mEGLHelper = new EGLHelper();
+            this.mSwapInterval = CardboardView.this.mSwapInterval;
+            this.mPresentationFrameTimeNanos = CardboardView.this.getDisplayFrameTimeNanos();
+            this.mFrameInfo = new FrameInfo();
             this.mVRMode = CardboardView.this.mVRMode;
             this.mDistortionCorrectionEnabled = CardboardView.this.mDistortionCorrectionEnabled;
             this.mProjectionChanged = true;
@@ -277,60 +550,128 @@ public class CardboardView extends GLSurfaceView {
         
         public void setRenderer(final Renderer renderer) {
             this.mRenderer = renderer;
+            this.mVertexDistortionRenderer = (renderer instanceof StereoRendererHelper) && ((StereoRendererHelper)renderer).isVertexDistortionRenderer();
+            this.mTimedRenderer = (renderer instanceof StereoRendererHelper) && ((StereoRendererHelper)renderer).isTimedRenderer();
+            this.mProjectionChanged = true;
         }
         
-        public void shutdown() {
+        public void shutdown(final ShutdownRequest request) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
+                    if (request.isFinished()) {
+                        return;
+                    }
                     if (RendererHelper.this.mRenderer != null && RendererHelper.this.mSurfaceCreated) {
                         RendererHelper.this.mSurfaceCreated = false;
+                        RendererHelper.this.mGLResourcesReleasePending = true;
                         RendererHelper.this.mRenderer.onRendererShutdown();
                     }
-                    CardboardView.this.mShutdownLatch.countDown();
                 }
             });
-        }
-        
-        public void setCardboardDeviceParams(final CardboardDeviceParams newParams) {
-            final CardboardDeviceParams deviceParams = new CardboardDeviceParams(newParams);
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
-                    RendererHelper.this.mHmd.setCardboardDeviceParams(deviceParams);
-                    RendererHelper.this.mProjectionChanged = true;
+                    if (!request.isFinished() && RendererHelper.this.mGLResourcesReleasePending) {
+                        RendererHelper.this.mDistortionRenderer.releaseGLResources();
+                        RendererHelper.this.mGpuFrameTimer.release();
+                    }
                 }
             });
-        }
-        
-        public void setScreenParams(final ScreenParams newParams) {
-            final ScreenParams screenParams = new ScreenParams(newParams);
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
-                    RendererHelper.this.mHmd.setScreenParams(screenParams);
-                    RendererHelper.this.mProjectionChanged = true;
+                    if (request.isFinished()) {
+                        return;
+                    }
+                    if (RendererHelper.this.mGLResourcesReleasePending) {
+                        RendererHelper.this.mGLResourcesReleasePending = false;
+                        CardboardView.this.mUiLayer.releaseGl();
+                    }
+                    request.finish(ShutdownStatus.COMPLETED);
                 }
             });
         }
         
+        public void setCardboardDeviceParams(final CardboardDeviceParams newParams) {
+            this.mPendingConfig.setCardboardDeviceParams(newParams);
+        }
+        
+        public void setScreenParams(final ScreenParams newParams) {
+            this.mPendingConfig.setScreenParams(newParams);
+        }
+        
+        private void applyPendingConfig() {
+            if (!this.mPendingConfig.hasPendingChanges()) {
+                return;
+            }
+            final RendererConfig config = this.mAppliedConfig;
+            final int changes = this.mPendingConfig.copyChangesTo(config);
+            if ((changes & RendererConfig.CARDBOARD_DEVICE_PARAMS) != 0 && !config.cardboardDeviceParams.equals(this.mHmd.getCardboardDeviceParams())) {
+                this.mHmd.setCardboardDeviceParams(config.cardboardDeviceParams);
+                this.mProjectionChanged = true;
+            }
+            if ((changes & RendererConfig.SCREEN_PARAMS) != 0 && !config.screenParams.equals(this.mHmd.getScreenParams())) {
+                this.mHmd.setScreenParams(config.screenParams);
+                this.mProjectionChanged = true;
+            }
+            if ((changes & RendererConfig.DISTORTION_CORRECTION) != 0 && config.distortionCorrectionEnabled != this.mDistortionCorrectionEnabled) {
+                this.mDistortionCorrectionEnabled = config.distortionCorrectionEnabled;
+                this.mProjectionChanged = true;
+            }
+            if ((changes & RendererConfig.DISTORTION_CORRECTION_SCALE) != 0) {
+                this.mDistortionRenderer.setResolutionScale(config.distortionCorrectionScale);
+            }
+            if ((changes & RendererConfig.DYNAMIC_RESOLUTION_SCALE_RANGE) != 0) {
+                this.mDistortionRenderer.setDynamicResolutionScaleRange(config.minDynamicResolutionScale, config.maxDynamicResolutionScale);
+            }
+            if ((changes & RendererConfig.DYNAMIC_RESOLUTION_SCALE) != 0) {
+                this.mDistortionRenderer.setTargetFrameTime(config.targetFrameTimeNanos);
+                this.mDistortionRenderer.setDynamicResolutionScaleEnabled(config.dynamicResolutionScaleEnabled);
+            }
+            if ((changes & RendererConfig.RESTORE_GL_STATE) != 0) {
+                this.mDistortionRenderer.setRestoreGLStateEnabled(config.restoreGLStateEnabled);
+            }
+            if ((changes & RendererConfig.CHROMATIC_ABERRATION_CORRECTION) != 0) {
+                this.mDistortionRenderer.setChromaticAberrationCorrectionEnabled(config.chromaticAberrationCorrectionEnabled);
+            }
+            if ((changes & RendererConfig.VIGNETTE) != 0) {
+                this.mDistortionRenderer.setVignetteEnabled(config.vignetteEnabled);
+            }
+            if ((changes & RendererConfig.COMPACT_VERTEX_FORMAT) != 0) {
+                this.mDistortionRenderer.setCompactVertexFormatEnabled(config.compactVertexFormatEnabled);
+            }
+            if ((changes & RendererConfig.MULTISAMPLE_COUNT) != 0) {
+                this.mDistortionRenderer.setMultisampleCount(config.multisampleCount);
+            }
+            if ((changes & RendererConfig.DEPTH_STENCIL_FORMAT) != 0) {
+                this.mDistortionRenderer.setDepthStencilFormat(config.depthStencilFormat);
+            }
+            if ((changes & RendererConfig.FOVEATION_PARAMETERS) != 0) {
+                this.mDistortionRenderer.setFoveationParameters(config.fovealFraction, config.peripheralResolutionScale);
+            }
+            if ((changes & RendererConfig.FOVEATED_RENDERING) != 0) {
+                this.mDistortionRenderer.setFoveatedRenderingEnabled(config.foveatedRenderingEnabled);
+            }
+            if ((changes & RendererConfig.TEXTURE_FORMAT) != 0) {
+                this.mDistortionRenderer.setTextureFormat(config.textureFormat, config.textureType);
+            }
+        }
+        
         public void setDistortionCorrectionEnabled(final boolean enabled) {
-            CardboardView.this.queueEvent(new Runnable() {
-                @Override
-                public void run() {
-                    RendererHelper.this.mDistortionCorrectionEnabled = enabled;
-                    RendererHelper.this.mProjectionChanged = true;
-                }
-            });
+            this.mPendingConfig.setDistortionCorrectionEnabled(enabled);
         }
         
         public void setDistortionCorrectionScale(final float scale) {
-            CardboardView.this.queueEvent(new Runnable() {
-                @Override
-                public void run() {
-                    RendererHelper.this.mDistortionRenderer.setResolutionScale(scale);
-                }
-            });
+            this.mPendingConfig.setDistortionCorrectionScale(scale);
+        }
+        
+        public void setDynamicResolutionScaleEnabled(final boolean enabled, final long targetFrameTimeNanos) {
+            this.mPendingConfig.setDynamicResolutionScaleEnabled(enabled, targetFrameTimeNanos);
+        }
+        
+        public void setDynamicResolutionScaleRange(final float minScale, final float maxScale) {
+            this.mPendingConfig.setDynamicResolutionScaleRange(minScale, maxScale);
         }
         
         public void setVRModeEnabled(final boolean enabled) {
@@ -351,43 +692,122 @@ public class CardboardView extends GLSurfaceView {
             });
         }
         
-        public void setRestoreGLStateEnabled(final boolean enabled) {
+        public void setSwapInterval(final int interval) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
-                    RendererHelper.this.mDistortionRenderer.setRestoreGLStateEnabled(enabled);
+                    RendererHelper.this.mSwapInterval = interval;
+                    if (RendererHelper.this.mSurfaceCreated) {
+                        RendererHelper.this.mEGLHelper.setSwapInterval(interval);
+                    }
                 }
             });
         }
         
-        public void setChromaticAberrationCorrectionEnabled(final boolean enabled) {
+        public void setPresentationTimeEnabled(final boolean enabled, final long frameTimeNanos) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
-                    RendererHelper.this.mDistortionRenderer.setChromaticAberrationCorrectionEnabled(enabled);
+                    RendererHelper.this.mPresentationTimeEnabled = enabled;
+                    RendererHelper.this.mPresentationFrameTimeNanos = frameTimeNanos;
                 }
             });
         }
         
-        public void setVignetteEnabled(final boolean enabled) {
+        public void setRestoreGLStateEnabled(final boolean enabled) {
+            this.mPendingConfig.setRestoreGLStateEnabled(enabled);
+        }
+        
+        public void setStaticGLStateEnabled(final boolean enabled) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
-                    RendererHelper.this.mDistortionRenderer.setVignetteEnabled(enabled);
-                    RendererHelper.this.mProjectionChanged = true;
+                    RendererHelper.this.mDistortionRenderer.setStaticGLStateEnabled(enabled);
+                    CardboardView.this.mUiLayer.setStaticGLStateEnabled(enabled);
                 }
             });
         }
         
-        public void setDistortionCorrectionTextureFormat(final int textureFormat, final int textureType) {
+        public void setStaticGLStateVerificationEnabled(final boolean enabled) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
                 public void run() {
-                    RendererHelper.this.mDistortionRenderer.setTextureFormat(textureFormat, textureType);
+                    RendererHelper.this.mDistortionRenderer.setStaticGLStateVerificationEnabled(enabled);
+                    CardboardView.this.mUiLayer.setStaticGLStateVerificationEnabled(enabled);
                 }
             });
         }
         
+        public void invalidateStaticGLState() {
+            CardboardView.this.queueEvent(new Runnable() {
+                @Override
+                public void run() {
+                    RendererHelper.this.resetStaticGLState();
+                }
+            });
+        }
+        
+        private void resetStaticGLState() {
+            this.mDistortionRenderer.invalidateStaticGLState();
+            CardboardView.this.mUiLayer.invalidateStaticGLState();
+        }
+        
+        public void setChromaticAberrationCorrectionEnabled(final boolean enabled) {
+            this.mPendingConfig.setChromaticAberrationCorrectionEnabled(enabled);
+        }
+        
+        public void setVignetteEnabled(final boolean enabled) {
+            this.mPendingConfig.setVignetteEnabled(enabled);
+        }
+        
+        public void setCompactVertexFormatEnabled(final boolean enabled) {
+            this.mPendingConfig.setCompactVertexFormatEnabled(enabled);
+        }
+        
+        public void setMultisampleCount(final int samples) {
+            this.mPendingConfig.setMultisampleCount(samples);
+        }
+        
+        public void setDepthStencilFormat(final int depthStencilFormat) {
+            this.mPendingConfig.setDepthStencilFormat(depthStencilFormat);
+        }
+        
+        public void setFoveatedRenderingEnabled(final boolean enabled) {
+            this.mPendingConfig.setFoveatedRenderingEnabled(enabled);
+        }
+        
+        public void setFoveationParameters(final float fovealFraction, final float peripheralResolutionScale) {
+            this.mPendingConfig.setFoveationParameters(fovealFraction, peripheralResolutionScale);
+        }
+        
+        boolean isFoveatedFrame() {
+            return this.mFoveatedFrame;
+        }
+        
+        boolean isVertexDistortionFrame() {
+            return this.mVertexDistortionFrame;
+        }
+        
+        VertexDistortion getVertexDistortion(final Eye eye) {
+            return (eye.getType() == Eye.Type.RIGHT) ? this.mRightVertexDistortion : this.mLeftVertexDistortion;
+        }
+        
+        Eye getLeftFovealEye() {
+            return this.mLeftFovealEye;
+        }
+        
+        Eye getRightFovealEye() {
+            return this.mRightFovealEye;
+        }
+        
+        FrameInfo getFrameInfo() {
+            return this.mFrameInfo;
+        }
+        
+        public void setDistortionCorrectionTextureFormat(final int textureFormat, final int textureType) {
+            this.mPendingConfig.setTextureFormat(textureFormat, textureType);
+        }
+        
         public void undistortTexture(final int inputTexture) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
@@ -397,6 +817,16 @@ public class CardboardView extends GLSurfaceView {
             });
         }
         
+        public void setExternalTextureSource(final ExternalTextureSource source, final int layout) {
+            CardboardView.this.queueEvent(new Runnable() {
+                @Override
+                public void run() {
+                    RendererHelper.this.mExternalTextureSource = source;
+                    RendererHelper.this.mExternalTextureLayout = layout;
+                }
+            });
+        }
+        
         public void renderUiLayer() {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
@@ -406,7 +836,14 @@ public class CardboardView extends GLSurfaceView {
             });
         }
         
+        public long getCurrentFrameIndex() {
+            return this.mFrameParamsBuffer.getFrameIndex();
+        }
+        
         public void getCurrentEyeParams(final HeadTransform head, final Eye leftEye, final Eye rightEye, final Eye monocular) {
+            if (this.mFrameParamsBuffer.read(head, leftEye, rightEye, monocular) != 0L) {
+                return;
+            }
             final CountDownLatch finished = new CountDownLatch(1);
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
@@ -431,12 +868,8 @@ public class CardboardView extends GLSurfaceView {
             CardboardView.this.mHeadTracker.getLastHeadView(head.getHeadView(), 0);
             final float halfInterpupillaryDistance = cdp.getInterLensDistance() * 0.5f;
             if (this.mVRMode) {
-                Matrix.setIdentityM(this.mLeftEyeTranslate, 0);
-                Matrix.setIdentityM(this.mRightEyeTranslate, 0);
-                Matrix.translateM(this.mLeftEyeTranslate, 0, halfInterpupillaryDistance, 0.0f, 0.0f);
-                Matrix.translateM(this.mRightEyeTranslate, 0, -halfInterpupillaryDistance, 0.0f, 0.0f);
-                Matrix.multiplyMM(leftEye.getEyeView(), 0, this.mLeftEyeTranslate, 0, head.getHeadView(), 0);
-                Matrix.multiplyMM(rightEye.getEyeView(), 0, this.mRightEyeTranslate, 0, head.getHeadView(), 0);
+                CardboardView.translateHeadView(leftEye.getEyeView(), head.getHeadView(), halfInterpupillaryDistance);
+                CardboardView.translateHeadView(rightEye.getEyeView(), head.getHeadView(), -halfInterpupillaryDistance);
             }
             else {
                 System.arraycopy(head.getHeadView(), 0, monocular.getEyeView(), 0, head.getHeadView().length);
@@ -447,6 +880,10 @@ public class CardboardView extends GLSurfaceView {
                 if (!this.mVRMode) {
                     this.updateMonocularFieldOfView(monocular.getFov());
                 }
+                else if (this.mDistortionCorrectionEnabled && this.mVertexDistortionRenderer) {
+                    this.updateFieldOfView(leftEye.getFov(), rightEye.getFov());
+                    this.updateVertexDistortion(leftEye, rightEye);
+                }
                 else if (this.mDistortionCorrectionEnabled) {
                     this.updateFieldOfView(leftEye.getFov(), rightEye.getFov());
                     this.mDistortionRenderer.onFovChanged(this.mHmd, leftEye.getFov(), rightEye.getFov(), this.getVirtualEyeToScreenDistance());
@@ -459,36 +896,106 @@ public class CardboardView extends GLSurfaceView {
                 monocular.setProjectionChanged();
                 this.mProjectionChanged = false;
             }
-            if (this.mDistortionCorrectionEnabled && this.mDistortionRenderer.haveViewportsChanged()) {
+            if (this.mDistortionCorrectionEnabled && !this.mVertexDistortionRenderer && this.mDistortionRenderer.haveViewportsChanged()) {
                 this.mDistortionRenderer.updateViewports(leftEye.getViewport(), rightEye.getViewport());
             }
         }
         
         public void onDrawFrame(final GL10 gl) {
+            this.applyPendingConfig();
             if (this.mRenderer == null || !this.mSurfaceCreated || this.mInvalidSurfaceSize) {
                 return;
             }
-            this.getFrameParams(this.mHeadTransform, this.mLeftEye, this.mRightEye, this.mMonocular);
+            this.mFrameStartNanos = System.nanoTime();
+            final boolean gpuTimed = this.mTimedRenderer || this.mDistortionRenderer.isDynamicResolutionScaleEnabled();
+            if (gpuTimed) {
+                this.beginTimedFrame();
+            }
             if (this.mVRMode) {
-                if (this.mDistortionCorrectionEnabled) {
-                    this.mDistortionRenderer.beforeDrawFrame();
-                    this.mRenderer.onDrawFrame(this.mHeadTransform, this.mLeftEye, this.mRightEye);
-                    this.mDistortionRenderer.afterDrawFrame();
-                }
-                else {
-                    this.mRenderer.onDrawFrame(this.mHeadTransform, this.mLeftEye, this.mRightEye);
+                this.drawStereoFrame();
+            }
+            else {
+                this.drawMonocularFrame();
+            }
+            if (gpuTimed) {
+                this.mGpuFrameTimer.endFrame();
+            }
+            if (this.mTimedRenderer) {
+                this.mPreviousFrameCpuNanos = System.nanoTime() - this.mFrameStartNanos;
+            }
+            if (this.mPresentationTimeEnabled) {
+                this.mEGLHelper.setPresentationTime(this.mFrameStartNanos + this.mPresentationFrameTimeNanos);
+            }
+        }
+        
+        private void beginTimedFrame() {
+            this.mGpuFrameTimer.poll();
+            if (this.mTimedRenderer) {
+                final long frameDeltaNanos = (this.mPreviousFrameStartNanos != 0L) ? (this.mFrameStartNanos - this.mPreviousFrameStartNanos) : 0L;
+                this.mFrameInfo.set(this.mFrameParamsBuffer.getFrameIndex() + 1L, this.mFrameStartNanos, this.mFrameStartNanos + this.mPresentationFrameTimeNanos,
+                        frameDeltaNanos, this.mPreviousFrameCpuNanos, this.mGpuFrameTimer.getLastFrameNanos(), this.mGpuFrameTimer.getLastFrameAge());
+                this.mPreviousFrameStartNanos = this.mFrameStartNanos;
+            }
+            this.mGpuFrameTimer.beginFrame();
+        }
+        
+        private void drawStereoFrame() {
+            this.getFrameParams(this.mHeadTransform, this.mLeftEye, this.mRightEye, this.mMonocular);
+            this.mVertexDistortionFrame = this.mDistortionCorrectionEnabled && this.mVertexDistortionRenderer;
+            this.mFoveatedFrame = this.mDistortionCorrectionEnabled && !this.mVertexDistortionFrame && this.mDistortionRenderer.isFoveatedRenderingEnabled();
+            if (this.mFoveatedFrame) {
+                this.updateFovealEyes();
+            }
+            this.mFrameParamsBuffer.publish(this.mHeadTransform, this.mLeftEye, this.mRightEye, this.mMonocular);
+            if (this.mDistortionCorrectionEnabled && this.mExternalTextureSource != null) {
+                final int textureId = this.mExternalTextureSource.updateExternalTexture(this.mExternalTextureTransform);
+                this.mDistortionRenderer.undistortExternalTexture(textureId, this.mExternalTextureTransform,
+                        this.mExternalTextureLayout, this.mLeftEye.getEyeView(), this.mRightEye.getEyeView());
+                if (this.mRenderer instanceof StereoRendererHelper) {
+                    ((StereoRendererHelper)this.mRenderer).onNewFrame(this.mHeadTransform);
                 }
             }
+            else if (this.mDistortionCorrectionEnabled && !this.mVertexDistortionFrame) {
+                this.mDistortionRenderer.beforeDrawFrame();
+                this.mRenderer.onDrawFrame(this.mHeadTransform, this.mLeftEye, this.mRightEye);
+                this.mDistortionRenderer.afterDrawFrame();
+            }
             else {
-                this.mRenderer.onDrawFrame(this.mHeadTransform, this.mMonocular, null);
+                this.mRenderer.onDrawFrame(this.mHeadTransform, this.mLeftEye, this.mRightEye);
             }
             this.mRenderer.onFinishFrame(this.mMonocular.getViewport());
-            if (this.mVRMode) {
-                CardboardView.this.mUiLayer.draw();
+            CardboardView.this.mUiLayer.draw();
+            if (this.mDistortionCorrectionEnabled && !this.mVertexDistortionFrame) {
+                this.mDistortionRenderer.invalidateDefaultFramebuffer();
+            }
+        }
+        
+        private void drawMonocularFrame() {
+            final Eye monocular = this.mMonocular;
+            final float[] headView = this.mHeadTransform.getHeadView();
+            CardboardView.this.mHeadTracker.getLastHeadView(headView, 0);
+            System.arraycopy(headView, 0, monocular.getEyeView(), 0, headView.length);
+            if (this.mProjectionChanged) {
+                final ScreenParams screen = this.mHmd.getScreenParams();
+                monocular.getViewport().setViewport(0, 0, screen.getWidth(), screen.getHeight());
+                this.updateMonocularFieldOfView(monocular.getFov());
+                monocular.setProjectionChanged();
+                this.mProjectionChanged = false;
+            }
+            this.mVertexDistortionFrame = false;
+            this.mFoveatedFrame = false;
+            this.mFrameParamsBuffer.publish(this.mHeadTransform, this.mLeftEye, this.mRightEye, monocular);
+            if (this.mRenderer instanceof StereoRendererHelper) {
+                ((StereoRendererHelper)this.mRenderer).onDrawMonocularFrame(this.mHeadTransform, monocular);
+            }
+            else {
+                this.mRenderer.onDrawFrame(this.mHeadTransform, monocular, null);
+                this.mRenderer.onFinishFrame(monocular.getViewport());
             }
         }
         
         public void onSurfaceChanged(final GL10 gl, final int width, final int height) {
+            this.applyPendingConfig();
             if (this.mRenderer == null || !this.mSurfaceCreated) {
                 return;
             }
@@ -503,6 +1010,8 @@ public class CardboardView extends GLSurfaceView {
             else {
                 this.mInvalidSurfaceSize = false;
             }
+            this.resetStaticGLState();
+            this.mEGLHelper.setSwapInterval(this.mSwapInterval);
             this.mRenderer.onSurfaceChanged(width, height);
         }
         
@@ -511,10 +1020,29 @@ public class CardboardView extends GLSurfaceView {
                 return;
             }
             this.mSurfaceCreated = true;
+            this.mGLResourcesReleasePending = false;
+            this.mDistortionRenderer.abandonGLResources();
+            CardboardView.this.mUiLayer.abandonGl();
+            CardboardView.this.mResourceRegistry.abandon();
+            this.mEGLHelper.onContextCreated();
+            final GLCapabilities capabilities = GLCapabilities.query();
+            CardboardView.this.mSinglePassStereoSupported = capabilities.supportsInstancedStereo();
+            this.mGpuFrameTimer.onContextCreated(capabilities);
+            this.mPreviousFrameStartNanos = 0L;
+            this.mPreviousFrameCpuNanos = 0L;
+            this.resetStaticGLState();
             this.mRenderer.onSurfaceCreated(config);
             CardboardView.this.mUiLayer.initializeGl();
         }
         
+        private void updateFovealEyes() {
+            System.arraycopy(this.mLeftEye.getEyeView(), 0, this.mLeftFovealEye.getEyeView(), 0, this.mLeftEye.getEyeView().length);
+            System.arraycopy(this.mRightEye.getEyeView(), 0, this.mRightFovealEye.getEyeView(), 0, this.mRightEye.getEyeView().length);
+            if (this.mDistortionRenderer.haveFovealViewportsChanged()) {
+                this.mDistortionRenderer.updateFovealEyes(this.mLeftEye, this.mRightEye, this.mLeftFovealEye, this.mRightFovealEye);
+            }
+        }
+        
         private void updateFieldOfView(final FieldOfView leftEyeFov, final FieldOfView rightEyeFov) {
             final CardboardDeviceParams cdp = this.mHmd.getCardboardDeviceParams();
             final ScreenParams screen = this.mHmd.getScreenParams();
@@ -548,6 +1076,26 @@ public class CardboardView extends GLSurfaceView {
             monocularFov.setTop(monocularBottomFov);
         }
         
+        private void updateVertexDistortion(final Eye leftEye, final Eye rightEye) {
+            final ScreenParams screen = this.mHmd.getScreenParams();
+            final CardboardDeviceParams cdp = this.mHmd.getCardboardDeviceParams();
+            final float eyeToScreen = this.getVirtualEyeToScreenDistance();
+            final float screenWidthTanAngle = screen.getWidthMeters() / eyeToScreen;
+            final float screenHeightTanAngle = screen.getHeightMeters() / eyeToScreen;
+            final float xEyeOffsetTanAngle = (screen.getWidthMeters() / 2.0f - cdp.getInterLensDistance() / 2.0f) / eyeToScreen;
+            final float yEyeOffsetTanAngle = (cdp.getVerticalDistanceToLensCenter() - screen.getBorderSizeMeters()) / eyeToScreen;
+            final float maxX = Math.max(xEyeOffsetTanAngle, screenWidthTanAngle / 2.0f - xEyeOffsetTanAngle);
+            final float maxY = Math.max(yEyeOffsetTanAngle, screenHeightTanAngle - yEyeOffsetTanAngle);
+            final Distortion inverse = cdp.getDistortion().getApproximateInverseDistortion((float)Math.sqrt(maxX * maxX + maxY * maxY));
+            final float halfWidthTanAngle = screenWidthTanAngle / 2.0f;
+            this.mLeftVertexDistortion.update(leftEye.getFov(), inverse, screenWidthTanAngle, screenHeightTanAngle,
+                    xEyeOffsetTanAngle, yEyeOffsetTanAngle, 0.0f, halfWidthTanAngle);
+            this.mRightVertexDistortion.update(rightEye.getFov(), inverse, screenWidthTanAngle, screenHeightTanAngle,
+                    screenWidthTanAngle - xEyeOffsetTanAngle, yEyeOffsetTanAngle, halfWidthTanAngle, halfWidthTanAngle);
+            leftEye.getViewport().setViewport(0, 0, screen.getWidth() / 2, screen.getHeight());
+            rightEye.getViewport().setViewport(screen.getWidth() / 2, 0, screen.getWidth() / 2, screen.getHeight());
+        }
+        
         private void updateUndistortedFovAndViewport() {
             final ScreenParams screen = this.mHmd.getScreenParams();
             final CardboardDeviceParams cdp = this.mHmd.getCardboardDeviceParams();
@@ -579,14 +1127,30 @@ public class CardboardView extends GLSurfaceView {
     private class StereoRendererHelper implements Renderer
     {
         private final StereoRenderer mStereoRenderer;
+        private final SinglePassStereoRenderer mSinglePassStereoRenderer;
+        private final VertexDistortionRenderer mVertexDistortionRenderer;
+        private final TimedStereoRenderer mTimedStereoRenderer;
+        private final Viewport mStereoViewport;
         private boolean mVRMode;
         
         public StereoRendererHelper(final StereoRenderer stereoRenderer) {
             super();
             this.mStereoRenderer = stereoRenderer;
+            this.mSinglePassStereoRenderer = (stereoRenderer instanceof SinglePassStereoRenderer) ? ((SinglePassStereoRenderer)stereoRenderer) : null;
+            this.mVertexDistortionRenderer = (stereoRenderer instanceof VertexDistortionRenderer) ? ((VertexDistortionRenderer)stereoRenderer) : null;
+            this.mTimedStereoRenderer = (stereoRenderer instanceof TimedStereoRenderer) ? ((TimedStereoRenderer)stereoRenderer) : null;
+            this.mStereoViewport = new Viewport();
             this.mVRMode = CardboardView.this.mVRMode;
         }
         
+        boolean isVertexDistortionRenderer() {
+            return this.mVertexDistortionRenderer != null;
+        }
+        
+        boolean isTimedRenderer() {
+            return this.mTimedStereoRenderer != null;
+        }
+        
         public void setVRModeEnabled(final boolean enabled) {
             CardboardView.this.queueEvent(new Runnable() {
                 @Override
@@ -598,8 +1162,50 @@ public class CardboardView extends GLSurfaceView {
         
         @Override
         public void onDrawFrame(final HeadTransform head, final Eye leftEye, final Eye rightEye) {
-            this.mStereoRenderer.onNewFrame(head);
+            this.onNewFrame(head);
             GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
+            this.drawEyes(leftEye, rightEye);
+            final RendererHelper rendererHelper = CardboardView.this.mRendererHelper;
+            if (rightEye != null && rendererHelper.isFoveatedFrame()) {
+                this.drawEyes(rendererHelper.getLeftFovealEye(), rendererHelper.getRightFovealEye());
+            }
+        }
+        
+        void onDrawMonocularFrame(final HeadTransform head, final Eye eye) {
+            this.onNewFrame(head);
+            GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+            eye.getViewport().setGLViewport();
+            this.mStereoRenderer.onDrawEye(eye);
+            this.mStereoRenderer.onFinishFrame(eye.getViewport());
+        }
+        
+        void onNewFrame(final HeadTransform head) {
+            if (this.mTimedStereoRenderer != null) {
+                this.mTimedStereoRenderer.onNewFrame(head, CardboardView.this.mRendererHelper.getFrameInfo());
+            }
+            else {
+                this.mStereoRenderer.onNewFrame(head);
+            }
+        }
+        
+        private void drawEyes(final Eye leftEye, final Eye rightEye) {
+            final RendererHelper rendererHelper = CardboardView.this.mRendererHelper;
+            if (rightEye != null && rendererHelper.isVertexDistortionFrame()) {
+                leftEye.getViewport().setGLViewport();
+                leftEye.getViewport().setGLScissor();
+                this.mVertexDistortionRenderer.onDrawEye(leftEye, rendererHelper.getVertexDistortion(leftEye));
+                rightEye.getViewport().setGLViewport();
+                rightEye.getViewport().setGLScissor();
+                this.mVertexDistortionRenderer.onDrawEye(rightEye, rendererHelper.getVertexDistortion(rightEye));
+                return;
+            }
+            if (rightEye != null && this.mSinglePassStereoRenderer != null && CardboardView.this.mSinglePassStereoSupported) {
+                SinglePassStereo.getPassViewport(leftEye.getViewport(), rightEye.getViewport(), this.mStereoViewport);
+                this.mStereoViewport.setGLViewport();
+                this.mStereoViewport.setGLScissor();
+                this.mSinglePassStereoRenderer.onDrawEyes(leftEye, rightEye);
+                return;
+            }
             leftEye.getViewport().setGLViewport();
             leftEye.getViewport().setGLScissor();
             this.mStereoRenderer.onDrawEye(leftEye);
@@ -639,6 +1245,45 @@ public class CardboardView extends GLSurfaceView {
         }
     }
     
+    private static class ShutdownRequest {
+        private final ShutdownCallback mCallback;
+        private final Handler mHandler;
+        private final CountDownLatch mLatch;
+        private final AtomicBoolean mFinished;
+        
+        ShutdownRequest(final ShutdownCallback callback) {
+            super();
+            this.mCallback = callback;
+            this.mHandler = new Handler(Looper.getMainLooper());
+            this.mLatch = new CountDownLatch(1);
+            this.mFinished = new AtomicBoolean();
+        }
+        
+        boolean await(final long timeoutMs) throws InterruptedException {
+            return this.mLatch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        
+        boolean isFinished() {
+            return this.mFinished.get();
+        }
+        
+        boolean finish(final int status) {
+            if (!this.mFinished.compareAndSet(false, true)) {
+                return false;
+            }
+            this.mLatch.countDown();
+            if (this.mCallback != null) {
+                this.mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        ShutdownRequest.this.mCallback.onShutdownComplete(status);
+                    }
+                });
+            }
+            return true;
+        }
+    }
+    
     public interface StereoRenderer {
         void onNewFrame(HeadTransform p0);
         void onDrawEye(Eye p0);
@@ -648,6 +1293,24 @@ public class CardboardView extends GLSurfaceView {
         void onRendererShutdown();
     }
     
+    public interface SinglePassStereoRenderer extends StereoRenderer {
+        void onDrawEyes(Eye p0, Eye p1);
+    }
+    
+    public interface VertexDistortionRenderer extends StereoRenderer {
+        void onDrawEye(Eye p0, VertexDistortion p1);
+    }
+    
+    public interface TimedStereoRenderer extends StereoRenderer {
+        void onNewFrame(HeadTransform p0, FrameInfo p1);
+    }
+    
+    public abstract static class TimedStereoRendererAdapter implements TimedStereoRenderer {
+        @Override
+        public final void onNewFrame(final HeadTransform head) {
+        }
+    }
+    
     public interface Renderer {
         void onDrawFrame(HeadTransform p0, Eye p1, Eye p2);
         void onFinishFrame(Viewport p0);
@@ -655,4 +1318,39 @@ public class CardboardView extends GLSurfaceView {
         void onSurfaceCreated(EGLConfig p0);
         void onRendererShutdown();
     }
+    
+    public abstract static class GLResourceType {
+        public static final int BUFFER = 0;
+        public static final int TEXTURE = 1;
+        public static final int RENDERBUFFER = 2;
+        public static final int FRAMEBUFFER = 3;
+        public static final int PROGRAM = 4;
+        public static final int VERTEX_ARRAY = 5;
+    }
+    
+    public interface ShutdownCallback {
+        void onShutdownComplete(int p0);
+    }
+    
+    public abstract static class ShutdownStatus {
+        public static final int COMPLETED = 0;
+        public static final int ABANDONED = 1;
+    }
+    
+    public interface ExternalTextureSource {
+        int updateExternalTexture(float[] p0);
+    }
+    
+    public abstract static class VideoLayout {
+        public static final int MONO = 0;
+        public static final int STEREO_TOP_BOTTOM = 1;
+        public static final int STEREO_LEFT_RIGHT = 2;
+    }
+    
+    public abstract static class DepthStencilFormat {
+        public static final int NONE = 0;
+        public static final int DEPTH_16 = 1;
+        public static final int DEPTH_24 = 2;
+        public static final int DEPTH_24_STENCIL_8 = 3;
+    }
 }
@@ -1,26 +1,34 @@
 package com.google.vrtoolkit.cardboard;
 
+import android.opengl.GLES11Ext;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 import android.util.Log;
 
+import com.google.vrtoolkit.cardboard.sensors.SystemClock;
+
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
 public class DistortionRenderer {
     private static final String TAG = "DistortionRenderer";
-    private int mTextureId;
-    private int mRenderbufferId;
-    private int mFramebufferId;
+    private final GLResourceRegistry mResourceRegistry;
+    private final RenderTargetPool mRenderTargetPool;
+    private RenderTargetPool.RenderTarget mRenderTarget;
+    private int mMultisampleCount;
+    private int mDepthStencilFormat;
     private IntBuffer mOriginalFramebufferId;
     private int mTextureFormat;
     private int mTextureType;
     private float mResolutionScale;
     private boolean mRestoreGLStateEnabled;
     private boolean mChromaticAberrationCorrectionEnabled;
+    private int mChannelTextureCoordSets;
+    private final float[] mChannelMask;
+    private boolean mCompactVertexFormatEnabled;
     private boolean mVignetteEnabled;
     private DistortionMesh mLeftEyeDistortionMesh;
     private DistortionMesh mRightEyeDistortionMesh;
@@ -30,21 +38,53 @@ public class DistortionRenderer {
     private EyeViewport mLeftEyeViewport;
     private EyeViewport mRightEyeViewport;
     private boolean mFovsChanged;
+    private boolean mMeshChanged;
     private boolean mViewportsChanged;
     private boolean mTextureFormatChanged;
     private boolean mDrawingFrame;
     private float mXPxPerTanAngle;
     private float mYPxPerTanAngle;
     private float mMetersPerTanAngle;
-    private ProgramHolder mProgramHolder;
-    private ProgramHolderAberration mProgramHolderAberration;
+    private final ProgramHolder[] mProgramHolders;
+    private ProgramHolderExternal mProgramHolderExternal;
+    private final float[] mEyeRotation;
+    private final float[] mLayoutTransform;
+    private GLCapabilities mGLCapabilities;
+    private boolean mImplicitResolveSupported;
+    private boolean mVertexArrayObjectsEnabled;
+    private boolean mFoveatedRenderingEnabled;
+    private float mFovealFraction;
+    private float mPeripheralResolutionScale;
+    private EyeViewport mLeftEyeRenderViewport;
+    private EyeViewport mRightEyeRenderViewport;
+    private EyeViewport mLeftFovealViewport;
+    private EyeViewport mRightFovealViewport;
+    private boolean mFovealViewportsChanged;
+    private static final float FOVEA_MARGIN_PX = 2.0f;
+    private static final int PROGRAM_VARIANT_ABERRATION = 1;
+    private static final int PROGRAM_VARIANT_FOVEATED = 2;
+    private static final int PROGRAM_VARIANT_CHANNEL_PAIR = 4;
+    private static final int PROGRAM_VARIANT_COUNT = 8;
+    private float mStaticResolutionScale;
+    private float mMinDynamicResolutionScale;
+    private float mMaxDynamicResolutionScale;
+    private long mTargetFrameTimeNanos;
+    private ResolutionScaleController mResolutionScaleController;
+    private final GpuFrameTimer mGpuFrameTimer;
+    private final boolean mOwnsGpuFrameTimer;
+    private int mGpuSampleCount;
+    private final FramebufferInvalidator mFramebufferInvalidator;
+    private ProgramCache mProgramCache;
+    private static final int RESTORED_GL_STATE = GLStateBackup.VIEWPORT | GLStateBackup.SCISSOR_TEST | GLStateBackup.SCISSOR_BOX
+            | GLStateBackup.CULL_FACE | GLStateBackup.CLEAR_COLOR | GLStateBackup.PROGRAM | GLStateBackup.TEXTURE_BINDING
+            | GLStateBackup.BUFFER_BINDINGS | GLStateBackup.VERTEX_ARRAYS;
     static final String VERTEX_SHADER =
             "attribute vec2 aPosition;\n"
           + "attribute float aVignette;\n"
           + "attribute vec2 aBlueTextureCoord;\n"
           + "varying vec2 vTextureCoord;\n"
           + "varying float vVignette;\n"
-          + "uniform float uTextureCoordScale;\n"
+          + "uniform vec2 uTextureCoordScale;\n"
           + "void main() {\n"
           + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
           + "    vTextureCoord = aBlueTextureCoord.xy * uTextureCoordScale;\n"
@@ -67,7 +107,7 @@ public class DistortionRenderer {
             + "varying vec2 vBlueTextureCoord;\n"
             + "varying vec2 vGreenTextureCoord;\n"
             + "varying float vVignette;\n"
-            + "uniform float uTextureCoordScale;\n"
+            + "uniform vec2 uTextureCoordScale;\n"
             + "void main() {\n"
             + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
             + "    vRedTextureCoord = aRedTextureCoord.xy * uTextureCoordScale;\n"
@@ -86,18 +126,175 @@ public class DistortionRenderer {
             + "                    texture2D(uTextureSampler, vGreenTextureCoord).g,\n"
             + "                    texture2D(uTextureSampler, vBlueTextureCoord).b, 1.0);\n"
             + "}\n";
+    static final String FOVEATE_FUNCTION =
+            "uniform vec2 uTextureCoordScale;\n"
+          + "uniform vec4 uFoveation[3];\n"
+          + "vec2 foveate(vec2 coord) {\n"
+          + "    vec4 transform = all(greaterThanEqual(coord, uFoveation[0].xy))\n"
+          + "            && all(lessThanEqual(coord, uFoveation[0].zw)) ? uFoveation[1] : uFoveation[2];\n"
+          + "    return (coord * transform.xy + transform.zw) * uTextureCoordScale;\n"
+          + "}\n";
+    static final String VERTEX_SHADER_FOVEATED =
+            "attribute vec2 aPosition;\n"
+          + "attribute float aVignette;\n"
+          + "attribute vec2 aBlueTextureCoord;\n"
+          + "varying vec2 vTextureCoord;\n"
+          + "varying float vVignette;\n"
+          + "void main() {\n"
+          + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
+          + "    vTextureCoord = aBlueTextureCoord.xy;\n"
+          + "    vVignette = aVignette;\n"
+          + "}\n";
+    static final String FRAGMENT_SHADER_FOVEATED =
+            "precision mediump float;\n"
+          + "varying vec2 vTextureCoord;\n"
+          + "varying float vVignette;\n"
+          + "uniform sampler2D uTextureSampler;\n"
+          + FOVEATE_FUNCTION
+          + "void main() {\n"
+          + "    gl_FragColor = vVignette * texture2D(uTextureSampler, foveate(vTextureCoord));\n"
+          + "}\n";
+    static final String VERTEX_SHADER_ABERRATION_FOVEATED = "attribute vec2 aPosition;\n"
+            + "attribute float aVignette;\n"
+            + "attribute vec2 aRedTextureCoord;\n"
+            + "attribute vec2 aGreenTextureCoord;\n"
+            + "attribute vec2 aBlueTextureCoord;\n"
+            + "varying vec2 vRedTextureCoord;\n"
+            + "varying vec2 vBlueTextureCoord;\n"
+            + "varying vec2 vGreenTextureCoord;\n"
+            + "varying float vVignette;\n"
+            + "void main() {\n"
+            + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
+            + "    vRedTextureCoord = aRedTextureCoord.xy;\n"
+            + "    vGreenTextureCoord = aGreenTextureCoord.xy;\n"
+            + "    vBlueTextureCoord = aBlueTextureCoord.xy;\n"
+            + "    vVignette = aVignette;\n"
+            + "}\n";
+    static final String FRAGMENT_SHADER_ABERRATION_FOVEATED = "precision mediump float;\n"
+            + "varying vec2 vRedTextureCoord;\n"
+            + "varying vec2 vBlueTextureCoord;\n"
+            + "varying vec2 vGreenTextureCoord;\n"
+            + "varying float vVignette;\n"
+            + "uniform sampler2D uTextureSampler;\n"
+            + FOVEATE_FUNCTION
+            + "void main() {\n"
+            + "    gl_FragColor = vVignette * vec4(texture2D(uTextureSampler, foveate(vRedTextureCoord)).r,\n"
+            + "                    texture2D(uTextureSampler, foveate(vGreenTextureCoord)).g,\n"
+            + "                    texture2D(uTextureSampler, foveate(vBlueTextureCoord)).b, 1.0);\n"
+            + "}\n";
+    static final String VERTEX_SHADER_CHANNEL_PAIR = "attribute vec2 aPosition;\n"
+            + "attribute float aVignette;\n"
+            + "attribute vec2 aChannelTextureCoord;\n"
+            + "attribute vec2 aBlueTextureCoord;\n"
+            + "varying vec2 vChannelTextureCoord;\n"
+            + "varying vec2 vBlueTextureCoord;\n"
+            + "varying float vVignette;\n"
+            + "uniform vec2 uTextureCoordScale;\n"
+            + "void main() {\n"
+            + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
+            + "    vChannelTextureCoord = aChannelTextureCoord.xy * uTextureCoordScale;\n"
+            + "    vBlueTextureCoord = aBlueTextureCoord.xy * uTextureCoordScale;\n"
+            + "    vVignette = aVignette;\n"
+            + "}\n";
+    static final String FRAGMENT_SHADER_CHANNEL_PAIR = "precision mediump float;\n"
+            + "varying vec2 vChannelTextureCoord;\n"
+            + "varying vec2 vBlueTextureCoord;\n"
+            + "varying float vVignette;\n"
+            + "uniform sampler2D uTextureSampler;\n"
+            + "uniform vec3 uChannelMask;\n"
+            + "void main() {\n"
+            + "    vec3 channel = texture2D(uTextureSampler, vChannelTextureCoord).rgb;\n"
+            + "    vec3 blue = texture2D(uTextureSampler, vBlueTextureCoord).rgb;\n"
+            + "    gl_FragColor = vVignette * vec4(mix(blue, channel, uChannelMask), 1.0);\n"
+            + "}\n";
+    static final String VERTEX_SHADER_CHANNEL_PAIR_FOVEATED = "attribute vec2 aPosition;\n"
+            + "attribute float aVignette;\n"
+            + "attribute vec2 aChannelTextureCoord;\n"
+            + "attribute vec2 aBlueTextureCoord;\n"
+            + "varying vec2 vChannelTextureCoord;\n"
+            + "varying vec2 vBlueTextureCoord;\n"
+            + "varying float vVignette;\n"
+            + "void main() {\n"
+            + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
+            + "    vChannelTextureCoord = aChannelTextureCoord.xy;\n"
+            + "    vBlueTextureCoord = aBlueTextureCoord.xy;\n"
+            + "    vVignette = aVignette;\n"
+            + "}\n";
+    static final String FRAGMENT_SHADER_CHANNEL_PAIR_FOVEATED = "precision mediump float;\n"
+            + "varying vec2 vChannelTextureCoord;\n"
+            + "varying vec2 vBlueTextureCoord;\n"
+            + "varying float vVignette;\n"
+            + "uniform sampler2D uTextureSampler;\n"
+            + "uniform vec3 uChannelMask;\n"
+            + FOVEATE_FUNCTION
+            + "void main() {\n"
+            + "    vec3 channel = texture2D(uTextureSampler, foveate(vChannelTextureCoord)).rgb;\n"
+            + "    vec3 blue = texture2D(uTextureSampler, foveate(vBlueTextureCoord)).rgb;\n"
+            + "    gl_FragColor = vVignette * vec4(mix(blue, channel, uChannelMask), 1.0);\n"
+            + "}\n";
+    
+    static final String VERTEX_SHADER_EXTERNAL =
+            "attribute vec2 aPosition;\n"
+          + "attribute float aVignette;\n"
+          + "attribute vec2 aBlueTextureCoord;\n"
+          + "varying vec3 vDirection;\n"
+          + "varying float vVignette;\n"
+          + "uniform vec4 uTanAngleTransform;\n"
+          + "uniform mat3 uEyeRotation;\n"
+          + "void main() {\n"
+          + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
+          + "    vDirection = uEyeRotation * vec3(aBlueTextureCoord * uTanAngleTransform.xy + uTanAngleTransform.zw, -1.0);\n"
+          + "    vVignette = aVignette;\n"
+          + "}\n";
+    static final String FRAGMENT_SHADER_EXTERNAL =
+            "#extension GL_OES_EGL_image_external : require\n"
+          + "#ifdef GL_FRAGMENT_PRECISION_HIGH\n"
+          + "precision highp float;\n"
+          + "#else\n"
+          + "precision mediump float;\n"
+          + "#endif\n"
+          + "varying vec3 vDirection;\n"
+          + "varying float vVignette;\n"
+          + "uniform samplerExternalOES uTextureSampler;\n"
+          + "uniform mat4 uTextureTransform;\n"
+          + "uniform vec4 uLayoutTransform;\n"
+          + "void main() {\n"
+          + "    vec3 direction = normalize(vDirection);\n"
+          + "    vec2 coord = vec2(atan(direction.x, -direction.z) * 0.1591549 + 0.5,\n"
+          + "                      asin(clamp(direction.y, -1.0, 1.0)) * 0.3183099 + 0.5);\n"
+          + "    coord = coord * uLayoutTransform.xy + uLayoutTransform.zw;\n"
+          + "    gl_FragColor = vVignette * texture2D(uTextureSampler, (uTextureTransform * vec4(coord, 0.0, 1.0)).xy);\n"
+          + "}\n";
     
     public DistortionRenderer() {
+        this(new GLResourceRegistry(), null);
+    }
+    
+    DistortionRenderer(final GLResourceRegistry resourceRegistry, final GpuFrameTimer gpuFrameTimer) {
         super();
-        this.mTextureId = -1;
-        this.mRenderbufferId = -1;
-        this.mFramebufferId = -1;
+        this.mResourceRegistry = resourceRegistry;
+        this.mOwnsGpuFrameTimer = (gpuFrameTimer == null);
+        this.mGpuFrameTimer = this.mOwnsGpuFrameTimer ? new GpuFrameTimer() : gpuFrameTimer;
+        this.mRenderTargetPool = new RenderTargetPool(resourceRegistry);
+        this.mFramebufferInvalidator = new FramebufferInvalidator();
+        this.mDepthStencilFormat = CardboardView.DepthStencilFormat.DEPTH_16;
         this.mOriginalFramebufferId = IntBuffer.allocate(1);
         this.mTextureFormat = GLES20.GL_RGB;
         this.mTextureType = GLES20.GL_UNSIGNED_BYTE;
         this.mResolutionScale = 1.0f;
-        this.mGLStateBackup = new GLStateBackup();
-        this.mGLStateBackupAberration = new GLStateBackup();
+        this.mStaticResolutionScale = 1.0f;
+        this.mMinDynamicResolutionScale = 0.5f;
+        this.mMaxDynamicResolutionScale = 1.0f;
+        this.mTargetFrameTimeNanos = 16666667L;
+        this.mFovealFraction = 0.5f;
+        this.mPeripheralResolutionScale = 0.5f;
+        this.mProgramHolders = new ProgramHolder[PROGRAM_VARIANT_COUNT];
+        this.mEyeRotation = new float[9];
+        this.mLayoutTransform = new float[4];
+        this.mChannelMask = new float[3];
+        this.mChannelTextureCoordSets = 1;
+        this.mGLStateBackup = new GLStateBackup(RESTORED_GL_STATE);
+        this.mGLStateBackupAberration = new GLStateBackup(RESTORED_GL_STATE);
     }
     
     public void setTextureFormat(final int textureFormat, final int textureType) {
@@ -111,31 +308,208 @@ public class DistortionRenderer {
         }
     }
     
+    public void setMultisampleCount(final int samples) {
+        if (samples < 0) {
+            throw new IllegalArgumentException("Sample count must be non-negative");
+        }
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot change the sample count during rendering.");
+        }
+        if (samples != this.mMultisampleCount) {
+            this.mMultisampleCount = samples;
+            this.mTextureFormatChanged = true;
+        }
+    }
+    
+    public void setDepthStencilFormat(final int depthStencilFormat) {
+        if (depthStencilFormat < CardboardView.DepthStencilFormat.NONE || depthStencilFormat > CardboardView.DepthStencilFormat.DEPTH_24_STENCIL_8) {
+            throw new IllegalArgumentException("Invalid depth/stencil format");
+        }
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot change the depth/stencil format during rendering.");
+        }
+        if (depthStencilFormat != this.mDepthStencilFormat) {
+            this.mDepthStencilFormat = depthStencilFormat;
+            this.mTextureFormatChanged = true;
+        }
+    }
+    
     public void beforeDrawFrame() {
         this.mDrawingFrame = true;
-        if (this.mFovsChanged || this.mTextureFormatChanged) {
+        this.initializeGLCapabilities();
+        if (this.mFovsChanged || this.mMeshChanged || this.mTextureFormatChanged || this.mRenderTarget == null) {
             this.updateTextureAndDistortionMesh();
         }
         GLES20.glGetIntegerv(GLES20.GL_FRAMEBUFFER_BINDING, this.mOriginalFramebufferId);
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.mFramebufferId);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.mRenderTarget.framebufferId);
+        this.mFramebufferInvalidator.beginOffscreenPass();
+        if (this.mResolutionScaleController != null && this.mOwnsGpuFrameTimer) {
+            this.mGpuFrameTimer.poll();
+            this.mGpuFrameTimer.beginFrame();
+        }
     }
     
     public void afterDrawFrame() {
+        this.mFramebufferInvalidator.endOffscreenPass();
+        final boolean aberrationCorrected = this.isChromaticAberrationCorrectionActive();
+        final ProgramHolder holder = this.getProgramHolder(this.getTextureCoordSets());
+        this.readGLState(aberrationCorrected);
+        if (this.mRenderTarget.isMultisampled()) {
+            this.resolveRenderTarget(this.mRenderTarget);
+        }
         GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.mOriginalFramebufferId.array()[0]);
-        this.undistortTexture(this.mTextureId);
+        this.renderDistortion(holder, aberrationCorrected, this.mRenderTarget.textureId);
+        if (this.mResolutionScaleController != null) {
+            if (this.mOwnsGpuFrameTimer) {
+                this.mGpuFrameTimer.endFrame();
+            }
+            this.updateResolutionScale();
+        }
+        this.mRenderTargetPool.endFrame();
         this.mDrawingFrame = false;
     }
     
+    private void updateResolutionScale() {
+        final ResolutionScaleController controller = this.mResolutionScaleController;
+        controller.setGpuTimingAvailable(this.mGpuFrameTimer.isSupported());
+        final int sampleCount = this.mGpuFrameTimer.getSampleCount();
+        if (sampleCount != this.mGpuSampleCount) {
+            this.mGpuSampleCount = sampleCount;
+            controller.addGpuFrameTime(this.mGpuFrameTimer.getLastFrameNanos());
+        }
+        controller.endFrame();
+        final float scale = controller.update();
+        if (scale != this.mResolutionScale) {
+            this.applyResolutionScale(scale);
+        }
+    }
+    
+    private void resolveRenderTarget(final RenderTargetPool.RenderTarget target) {
+        GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+        GLES20.glBindFramebuffer(GLES30.GL_READ_FRAMEBUFFER, target.framebufferId);
+        GLES20.glBindFramebuffer(GLES30.GL_DRAW_FRAMEBUFFER, target.resolveFramebufferId);
+        GLES30.glBlitFramebuffer(0, 0, target.usedWidth, target.usedHeight, 0, 0, target.usedWidth, target.usedHeight,
+                GLES20.GL_COLOR_BUFFER_BIT, GLES20.GL_NEAREST);
+        this.mFramebufferInvalidator.endResolve();
+    }
+    
+    public void undistortExternalTexture(final int textureId, final float[] textureTransform, final int layout,
+                                         final float[] leftEyeView, final float[] rightEyeView) {
+        this.initializeGLCapabilities();
+        if (this.mProgramHolderExternal == null) {
+            this.mProgramHolderExternal = this.createExternalProgramHolder();
+        }
+        final ProgramHolderExternal holder = this.mProgramHolderExternal;
+        GLES20.glGetIntegerv(GLES20.GL_FRAMEBUFFER_BINDING, this.mOriginalFramebufferId);
+        if (this.mRestoreGLStateEnabled) {
+            this.mGLStateBackup.readFromGL();
+        }
+        if (this.mFovsChanged || this.mMeshChanged) {
+            this.updateDistortionMesh();
+        }
+        if (this.mRenderTarget != null) {
+            this.mRenderTargetPool.release(this.mRenderTarget);
+            this.mRenderTarget = null;
+        }
+        final int screenWidth = this.mHmd.getScreenParams().getWidth();
+        final int screenHeight = this.mHmd.getScreenParams().getHeight();
+        GLES20.glViewport(0, 0, screenWidth, screenHeight);
+        GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+        GLES20.glDisable(GLES20.GL_CULL_FACE);
+        GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        GLES20.glUseProgram(holder.program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glUniform1i(holder.uTextureSampler, 0);
+        GLES20.glUniformMatrix4fv(holder.uTextureTransform, 1, false, textureTransform, 0);
+        GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
+        GLES20.glScissor(0, 0, screenWidth / 2, screenHeight);
+        this.renderExternalDistortionMesh(this.mLeftEyeDistortionMesh, holder, layout, Eye.Type.LEFT, leftEyeView);
+        GLES20.glScissor(screenWidth / 2, 0, screenWidth / 2, screenHeight);
+        this.renderExternalDistortionMesh(this.mRightEyeDistortionMesh, holder, layout, Eye.Type.RIGHT, rightEyeView);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, 0);
+        if (this.mVertexArrayObjectsEnabled) {
+            GLES30.glBindVertexArray(0);
+        }
+        if (this.mRestoreGLStateEnabled) {
+            this.mGLStateBackup.writeToGL();
+        }
+        this.mRenderTargetPool.endFrame();
+    }
+    
+    private void renderExternalDistortionMesh(final DistortionMesh mesh, final ProgramHolderExternal holder,
+                                              final int layout, final int eyeType, final float[] eyeView) {
+        if (this.mVertexArrayObjectsEnabled) {
+            this.bindVertexArray(mesh, holder);
+        }
+        else {
+            this.setVertexAttributes(mesh, holder);
+        }
+        for (int col = 0; col < 3; ++col) {
+            for (int row = 0; row < 3; ++row) {
+                this.mEyeRotation[col * 3 + row] = eyeView[row * 4 + col];
+            }
+        }
+        getLayoutTransform(layout, eyeType, this.mLayoutTransform);
+        GLES20.glUniformMatrix3fv(holder.uEyeRotation, 1, false, this.mEyeRotation, 0);
+        GLES20.glUniform4fv(holder.uTanAngleTransform, 1, mesh.mTanAngleTransform, 0);
+        GLES20.glUniform4fv(holder.uLayoutTransform, 1, this.mLayoutTransform, 0);
+        GLES20.glDrawElements(GLES20.GL_TRIANGLE_STRIP, mesh.nIndices, GLES20.GL_UNSIGNED_SHORT, 0);
+    }
+    
+    private static void getLayoutTransform(final int layout, final int eyeType, final float[] transform) {
+        final boolean right = (eyeType == Eye.Type.RIGHT);
+        switch (layout) {
+            case CardboardView.VideoLayout.STEREO_TOP_BOTTOM: {
+                transform[0] = 1.0f;
+                transform[1] = 0.5f;
+                transform[2] = 0.0f;
+                transform[3] = right ? 0.0f : 0.5f;
+                break;
+            }
+            case CardboardView.VideoLayout.STEREO_LEFT_RIGHT: {
+                transform[0] = 0.5f;
+                transform[1] = 1.0f;
+                transform[2] = right ? 0.5f : 0.0f;
+                transform[3] = 0.0f;
+                break;
+            }
+            default: {
+                transform[0] = 1.0f;
+                transform[1] = 1.0f;
+                transform[2] = 0.0f;
+                transform[3] = 0.0f;
+                break;
+            }
+        }
+    }
+    
+    public void invalidateDefaultFramebuffer() {
+        this.mFramebufferInvalidator.endFrame(this.mOriginalFramebufferId.array()[0]);
+    }
+    
     public void undistortTexture(final int textureId) {
+        this.initializeGLCapabilities();
+        final boolean aberrationCorrected = this.isChromaticAberrationCorrectionActive();
+        final ProgramHolder holder = this.getProgramHolder(this.getTextureCoordSets());
+        this.readGLState(aberrationCorrected);
+        this.renderDistortion(holder, aberrationCorrected, textureId);
+    }
+    
+    private void readGLState(final boolean aberrationCorrected) {
         if (this.mRestoreGLStateEnabled) {
-            if (this.mChromaticAberrationCorrectionEnabled) {
+            if (aberrationCorrected) {
                 this.mGLStateBackupAberration.readFromGL();
             }
             else {
                 this.mGLStateBackup.readFromGL();
             }
         }
-        if (this.mFovsChanged || this.mTextureFormatChanged) {
+    }
+    
+    private void renderDistortion(final ProgramHolder holder, final boolean aberrationCorrected, final int textureId) {
+        if (this.mFovsChanged || this.mMeshChanged || this.mTextureFormatChanged) {
             this.updateTextureAndDistortionMesh();
         }
         GLES20.glViewport(0, 0, this.mHmd.getScreenParams().getWidth(), this.mHmd.getScreenParams().getHeight());
@@ -143,19 +517,17 @@ public class DistortionRenderer {
         GLES20.glDisable(GLES20.GL_CULL_FACE);
         GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
-        if (this.mChromaticAberrationCorrectionEnabled) {
-            GLES20.glUseProgram(this.mProgramHolderAberration.program);
-        }
-        else {
-            GLES20.glUseProgram(this.mProgramHolder.program);
-        }
+        GLES20.glUseProgram(holder.program);
         GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
         GLES20.glScissor(0, 0, this.mHmd.getScreenParams().getWidth() / 2, this.mHmd.getScreenParams().getHeight());
-        this.renderDistortionMesh(this.mLeftEyeDistortionMesh, textureId);
+        this.renderDistortionMesh(this.mLeftEyeDistortionMesh, holder, textureId);
         GLES20.glScissor(this.mHmd.getScreenParams().getWidth() / 2, 0, this.mHmd.getScreenParams().getWidth() / 2, this.mHmd.getScreenParams().getHeight());
-        this.renderDistortionMesh(this.mRightEyeDistortionMesh, textureId);
+        this.renderDistortionMesh(this.mRightEyeDistortionMesh, holder, textureId);
+        if (this.mVertexArrayObjectsEnabled) {
+            GLES30.glBindVertexArray(0);
+        }
         if (this.mRestoreGLStateEnabled) {
-            if (this.mChromaticAberrationCorrectionEnabled) {
+            if (aberrationCorrected) {
                 this.mGLStateBackupAberration.writeToGL();
             }
             else {
@@ -164,22 +536,226 @@ public class DistortionRenderer {
         }
     }
     
+    void setProgramCache(final ProgramCache programCache) {
+        this.mProgramCache = programCache;
+    }
+    
     public void setResolutionScale(final float scale) {
+        this.mStaticResolutionScale = scale;
+        if (this.mResolutionScaleController == null) {
+            this.applyResolutionScale(scale);
+        }
+    }
+    
+    public void setDynamicResolutionScaleEnabled(final boolean enabled) {
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot change dynamic resolution scaling during rendering.");
+        }
+        if (enabled == (this.mResolutionScaleController != null)) {
+            return;
+        }
+        if (enabled) {
+            this.mResolutionScaleController = new ResolutionScaleController(this.mResolutionScale,
+                    this.mMinDynamicResolutionScale, this.mMaxDynamicResolutionScale, this.mTargetFrameTimeNanos, new SystemClock());
+            this.applyResolutionScale(this.mResolutionScaleController.getScale());
+        }
+        else {
+            this.mResolutionScaleController = null;
+            this.applyResolutionScale(this.mStaticResolutionScale);
+        }
+    }
+    
+    public boolean isDynamicResolutionScaleEnabled() {
+        return this.mResolutionScaleController != null;
+    }
+    
+    public void setDynamicResolutionScaleRange(final float minScale, final float maxScale) {
+        if (minScale <= 0.0f || minScale > maxScale || maxScale > 1.0f) {
+            throw new IllegalArgumentException("Dynamic resolution scale range must satisfy 0 < min <= max <= 1");
+        }
+        this.mMinDynamicResolutionScale = minScale;
+        this.mMaxDynamicResolutionScale = maxScale;
+        if (this.mResolutionScaleController != null) {
+            this.mResolutionScaleController.setScaleRange(minScale, maxScale);
+            if (!this.mDrawingFrame) {
+                this.applyResolutionScale(this.mResolutionScaleController.getScale());
+            }
+        }
+    }
+    
+    public void setTargetFrameTime(final long targetFrameTimeNanos) {
+        this.mTargetFrameTimeNanos = targetFrameTimeNanos;
+        if (this.mResolutionScaleController != null) {
+            this.mResolutionScaleController.setTargetFrameTimeNanos(targetFrameTimeNanos);
+        }
+    }
+    
+    private void applyResolutionScale(final float scale) {
         this.mResolutionScale = scale;
         this.mViewportsChanged = true;
+        this.mFovealViewportsChanged = true;
+    }
+    
+    public void releaseGLResources() {
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot release GL resources during rendering.");
+        }
+        if (this.mRenderTarget != null) {
+            this.mRenderTarget.delete();
+            this.mRenderTarget = null;
+        }
+        this.mRenderTargetPool.clear();
+        if (this.mLeftEyeDistortionMesh != null) {
+            this.mLeftEyeDistortionMesh.delete();
+            this.mLeftEyeDistortionMesh = null;
+        }
+        if (this.mRightEyeDistortionMesh != null) {
+            this.mRightEyeDistortionMesh.delete();
+            this.mRightEyeDistortionMesh = null;
+        }
+        for (int i = 0; i < this.mProgramHolders.length; ++i) {
+            if (this.mProgramHolders[i] != null) {
+                this.mResourceRegistry.delete(GLResourceRegistry.PROGRAM, this.mProgramHolders[i].program);
+                this.mProgramHolders[i] = null;
+            }
+        }
+        if (this.mProgramHolderExternal != null) {
+            this.mResourceRegistry.delete(GLResourceRegistry.PROGRAM, this.mProgramHolderExternal.program);
+            this.mProgramHolderExternal = null;
+        }
+        if (this.mResolutionScaleController != null) {
+            this.mResolutionScaleController.reset();
+        }
+        if (this.mOwnsGpuFrameTimer) {
+            this.mGpuFrameTimer.release();
+        }
+        this.mGLStateBackup.clearTrackedVertexAttributes();
+        this.mGLStateBackupAberration.clearTrackedVertexAttributes();
+        this.mMeshChanged = true;
+        this.invalidateStaticGLState();
+    }
+    
+    void abandonGLResources() {
+        this.mRenderTarget = null;
+        this.mRenderTargetPool.abandon();
+        this.mLeftEyeDistortionMesh = null;
+        this.mRightEyeDistortionMesh = null;
+        for (int i = 0; i < this.mProgramHolders.length; ++i) {
+            this.mProgramHolders[i] = null;
+        }
+        this.mProgramHolderExternal = null;
+        this.mGLStateBackup.clearTrackedVertexAttributes();
+        this.mGLStateBackupAberration.clearTrackedVertexAttributes();
+        this.mMeshChanged = true;
     }
     
     public void setRestoreGLStateEnabled(final boolean enabled) {
         this.mRestoreGLStateEnabled = enabled;
     }
     
+    public void setStaticGLStateEnabled(final boolean enabled) {
+        this.mGLStateBackup.setStaticStateEnabled(enabled);
+        this.mGLStateBackupAberration.setStaticStateEnabled(enabled);
+    }
+    
+    public void setStaticGLStateVerificationEnabled(final boolean enabled) {
+        this.mGLStateBackup.setStaticStateVerificationEnabled(enabled);
+        this.mGLStateBackupAberration.setStaticStateVerificationEnabled(enabled);
+    }
+    
+    public void invalidateStaticGLState() {
+        this.mGLStateBackup.invalidateStaticState();
+        this.mGLStateBackupAberration.invalidateStaticState();
+    }
+    
     public void setChromaticAberrationCorrectionEnabled(final boolean enabled) {
-        this.mChromaticAberrationCorrectionEnabled = enabled;
+        if (enabled != this.mChromaticAberrationCorrectionEnabled) {
+            this.mChromaticAberrationCorrectionEnabled = enabled;
+            this.mMeshChanged = true;
+        }
+    }
+    
+    private int getTextureCoordSets() {
+        return this.mChromaticAberrationCorrectionEnabled ? this.mChannelTextureCoordSets : 1;
+    }
+    
+    private boolean isChromaticAberrationCorrectionActive() {
+        return this.getTextureCoordSets() > 1;
+    }
+    
+    private void updateChannelTextureCoordSets(final CardboardDeviceParams cdp) {
+        final boolean redMatchesGreen = cdp.getDistortionRed().equals(cdp.getDistortion());
+        final boolean redMatchesBlue = cdp.getDistortionRed().equals(cdp.getDistortionBlue());
+        final boolean greenMatchesBlue = cdp.getDistortion().equals(cdp.getDistortionBlue());
+        if (redMatchesGreen && redMatchesBlue) {
+            this.mChannelTextureCoordSets = 1;
+        }
+        else if (redMatchesGreen || redMatchesBlue || greenMatchesBlue) {
+            this.mChannelTextureCoordSets = 2;
+        }
+        else {
+            this.mChannelTextureCoordSets = 3;
+        }
+        this.mChannelMask[0] = redMatchesBlue ? 0.0f : 1.0f;
+        this.mChannelMask[1] = greenMatchesBlue ? 0.0f : 1.0f;
+        this.mChannelMask[2] = 0.0f;
+    }
+    
+    public void setCompactVertexFormatEnabled(final boolean enabled) {
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot change the vertex format while rendering a frame.");
+        }
+        if (enabled != this.mCompactVertexFormatEnabled) {
+            this.mCompactVertexFormatEnabled = enabled;
+            this.mMeshChanged = true;
+        }
     }
     
     public void setVignetteEnabled(final boolean enabled) {
-        this.mVignetteEnabled = enabled;
+        if (enabled != this.mVignetteEnabled) {
+            this.mVignetteEnabled = enabled;
+            this.mMeshChanged = true;
+        }
+    }
+    
+    public void setFoveatedRenderingEnabled(final boolean enabled) {
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot change foveated rendering during rendering.");
+        }
+        if (enabled != this.mFoveatedRenderingEnabled) {
+            this.mFoveatedRenderingEnabled = enabled;
+            this.onRenderLayoutChanged();
+        }
+    }
+    
+    public boolean isFoveatedRenderingEnabled() {
+        return this.mFoveatedRenderingEnabled;
+    }
+    
+    public void setFoveationParameters(final float fovealFraction, final float peripheralResolutionScale) {
+        if (fovealFraction <= 0.0f || fovealFraction > 1.0f) {
+            throw new IllegalArgumentException("Foveal fraction must be in (0, 1]");
+        }
+        if (peripheralResolutionScale <= 0.0f || peripheralResolutionScale > 1.0f) {
+            throw new IllegalArgumentException("Peripheral resolution scale must be in (0, 1]");
+        }
+        if (this.mDrawingFrame) {
+            throw new IllegalStateException("Cannot change foveation parameters during rendering.");
+        }
+        this.mFovealFraction = fovealFraction;
+        this.mPeripheralResolutionScale = peripheralResolutionScale;
+        if (this.mFoveatedRenderingEnabled) {
+            this.onRenderLayoutChanged();
+        }
+    }
+    
+    private void onRenderLayoutChanged() {
+        if (this.mHmd != null) {
+            this.layoutRenderViewports();
+        }
         this.mFovsChanged = true;
+        this.mViewportsChanged = true;
+        this.mFovealViewportsChanged = true;
     }
     
     public void onFovChanged(final HeadMountedDisplay hmd, final FieldOfView leftFov,
@@ -188,14 +764,17 @@ public class DistortionRenderer {
             throw new IllegalStateException("Cannot change FOV while rendering a frame.");
         }
         this.mHmd = new HeadMountedDisplay(hmd);
+        this.updateChannelTextureCoordSets(this.mHmd.getCardboardDeviceParams());
         this.mLeftEyeViewport = this.initViewportForEye(leftFov, 0.0f);
         this.mRightEyeViewport = this.initViewportForEye(rightFov, this.mLeftEyeViewport.width);
+        this.layoutRenderViewports();
         this.mMetersPerTanAngle = virtualEyeToScreenDistance;
         final ScreenParams screen = this.mHmd.getScreenParams();
         this.mXPxPerTanAngle = screen.getWidth() / (screen.getWidthMeters() / this.mMetersPerTanAngle);
         this.mYPxPerTanAngle = screen.getHeight() / (screen.getHeightMeters() / this.mMetersPerTanAngle);
         this.mFovsChanged = true;
         this.mViewportsChanged = true;
+        this.mFovealViewportsChanged = true;
     }
     
     public boolean haveViewportsChanged() {
@@ -203,34 +782,98 @@ public class DistortionRenderer {
     }
     
     public void updateViewports(final Viewport leftViewport, final Viewport rightViewport) {
-        leftViewport.setViewport(Math.round(this.mLeftEyeViewport.x * this.mXPxPerTanAngle * this.mResolutionScale),
-                Math.round(this.mLeftEyeViewport.y * this.mYPxPerTanAngle * this.mResolutionScale),
-                Math.round(this.mLeftEyeViewport.width * this.mXPxPerTanAngle * this.mResolutionScale),
-                Math.round(this.mLeftEyeViewport.height * this.mYPxPerTanAngle * this.mResolutionScale));
-        rightViewport.setViewport(Math.round(this.mRightEyeViewport.x * this.mXPxPerTanAngle * this.mResolutionScale),
-                Math.round(this.mRightEyeViewport.y * this.mYPxPerTanAngle * this.mResolutionScale),
-                Math.round(this.mRightEyeViewport.width * this.mXPxPerTanAngle * this.mResolutionScale),
-                Math.round(this.mRightEyeViewport.height * this.mYPxPerTanAngle * this.mResolutionScale));
+        this.setViewport(this.mLeftEyeRenderViewport, leftViewport);
+        this.setViewport(this.mRightEyeRenderViewport, rightViewport);
         this.mViewportsChanged = false;
     }
     
+    public boolean haveFovealViewportsChanged() {
+        return this.mFovealViewportsChanged;
+    }
+    
+    public void updateFovealEyes(final Eye leftEye, final Eye rightEye, final Eye leftFovealEye, final Eye rightFovealEye) {
+        this.setViewport(this.mLeftFovealViewport, leftFovealEye.getViewport());
+        this.setViewport(this.mRightFovealViewport, rightFovealEye.getViewport());
+        this.setFovealFieldOfView(leftEye.getFov(), leftFovealEye.getFov());
+        this.setFovealFieldOfView(rightEye.getFov(), rightFovealEye.getFov());
+        leftFovealEye.setProjectionChanged();
+        rightFovealEye.setProjectionChanged();
+        this.mFovealViewportsChanged = false;
+    }
+    
+    private void setViewport(final EyeViewport eyeViewport, final Viewport viewport) {
+        viewport.setViewport(Math.round(eyeViewport.x * this.mXPxPerTanAngle * this.mResolutionScale),
+                Math.round(eyeViewport.y * this.mYPxPerTanAngle * this.mResolutionScale),
+                Math.round(eyeViewport.width * this.mXPxPerTanAngle * this.mResolutionScale),
+                Math.round(eyeViewport.height * this.mYPxPerTanAngle * this.mResolutionScale));
+    }
+    
+    private void setFovealFieldOfView(final FieldOfView eyeFov, final FieldOfView fovealFov) {
+        fovealFov.setLeft(this.scaleAngle(eyeFov.getLeft()));
+        fovealFov.setRight(this.scaleAngle(eyeFov.getRight()));
+        fovealFov.setBottom(this.scaleAngle(eyeFov.getBottom()));
+        fovealFov.setTop(this.scaleAngle(eyeFov.getTop()));
+    }
+    
+    private float scaleAngle(final float angle) {
+        return (float)Math.toDegrees(Math.atan(this.mFovealFraction * Math.tan(Math.toRadians(angle))));
+    }
+    
+    private void layoutRenderViewports() {
+        if (!this.mFoveatedRenderingEnabled) {
+            this.mLeftEyeRenderViewport = this.mLeftEyeViewport;
+            this.mRightEyeRenderViewport = this.mRightEyeViewport;
+            this.mLeftFovealViewport = null;
+            this.mRightFovealViewport = null;
+            return;
+        }
+        final float peripheralScale = this.mPeripheralResolutionScale;
+        final float fovealScale = this.mFovealFraction;
+        final float peripheralWidth = (this.mLeftEyeViewport.width + this.mRightEyeViewport.width) * peripheralScale;
+        this.mLeftEyeRenderViewport = this.layoutViewport(this.mLeftEyeViewport, 0.0f, peripheralScale);
+        this.mRightEyeRenderViewport = this.layoutViewport(this.mRightEyeViewport, this.mLeftEyeRenderViewport.width, peripheralScale);
+        this.mLeftFovealViewport = this.layoutViewport(this.mLeftEyeViewport, peripheralWidth, fovealScale);
+        this.mRightFovealViewport = this.layoutViewport(this.mRightEyeViewport, peripheralWidth + this.mLeftFovealViewport.width, fovealScale);
+    }
+    
+    private EyeViewport layoutViewport(final EyeViewport eyeViewport, final float x, final float scale) {
+        final EyeViewport vp = new EyeViewport();
+        vp.x = x;
+        vp.y = 0.0f;
+        vp.width = eyeViewport.width * scale;
+        vp.height = eyeViewport.height * scale;
+        vp.eyeX = x + (eyeViewport.eyeX - eyeViewport.x) * scale;
+        vp.eyeY = (eyeViewport.eyeY - eyeViewport.y) * scale;
+        return vp;
+    }
+    
     private void updateTextureAndDistortionMesh() {
+        final int[] maxTextureSize = { 0 };
+        GLES20.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, maxTextureSize, 0);
+        final int[] textureSize = this.updateDistortionMesh();
+        this.updateRenderTarget(Math.max(1, Math.min(textureSize[0], maxTextureSize[0])),
+                Math.max(1, Math.min(textureSize[1], maxTextureSize[0])), maxTextureSize[0]);
+    }
+    
+    private int[] updateDistortionMesh() {
         final ScreenParams screen = this.mHmd.getScreenParams();
         final CardboardDeviceParams cdp = this.mHmd.getCardboardDeviceParams();
-        if (this.mProgramHolder == null) {
-            this.mProgramHolder = this.createProgramHolder();
-        }
-        if (this.mProgramHolderAberration == null) {
-            this.mProgramHolderAberration = (ProgramHolderAberration)this.createProgramHolder(true);
-        }
         final float textureWidthTanAngle = this.mLeftEyeViewport.width + this.mRightEyeViewport.width;
         final float textureHeightTanAngle = Math.max(this.mLeftEyeViewport.height, this.mRightEyeViewport.height);
-        final int[] maxTextureSize = { 0 };
-        GLES20.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, maxTextureSize, 0);
-        final int textureWidthPx = Math.min(Math.round(textureWidthTanAngle * this.mXPxPerTanAngle), maxTextureSize[0]);
-        final int textureHeightPx = Math.min(Math.round(textureHeightTanAngle * this.mYPxPerTanAngle), maxTextureSize[0]);
+        float renderWidthTanAngle = this.mRightEyeRenderViewport.x + this.mRightEyeRenderViewport.width;
+        float renderHeightTanAngle = Math.max(this.mLeftEyeRenderViewport.height, this.mRightEyeRenderViewport.height);
+        if (this.mFoveatedRenderingEnabled) {
+            renderWidthTanAngle = this.mRightFovealViewport.x + this.mRightFovealViewport.width;
+            renderHeightTanAngle = Math.max(renderHeightTanAngle, Math.max(this.mLeftFovealViewport.height, this.mRightFovealViewport.height));
+        }
         float xEyeOffsetTanAngleScreen = (screen.getWidthMeters() / 2.0f - cdp.getInterLensDistance() / 2.0f) / this.mMetersPerTanAngle;
         final float yEyeOffsetTanAngleScreen = (cdp.getVerticalDistanceToLensCenter() - screen.getBorderSizeMeters()) / this.mMetersPerTanAngle;
+        if (this.mLeftEyeDistortionMesh != null) {
+            this.mLeftEyeDistortionMesh.delete();
+        }
+        if (this.mRightEyeDistortionMesh != null) {
+            this.mRightEyeDistortionMesh.delete();
+        }
         this.mLeftEyeDistortionMesh = this.createDistortionMesh(this.mLeftEyeViewport,
                 textureWidthTanAngle, textureHeightTanAngle,
                 xEyeOffsetTanAngleScreen, yEyeOffsetTanAngleScreen);
@@ -238,8 +881,37 @@ public class DistortionRenderer {
         this.mRightEyeDistortionMesh = this.createDistortionMesh(this.mRightEyeViewport,
                 textureWidthTanAngle, textureHeightTanAngle,
                 xEyeOffsetTanAngleScreen, yEyeOffsetTanAngleScreen);
-        this.setupRenderTextureAndRenderbuffer(textureWidthPx, textureHeightPx);
+        if (this.mFoveatedRenderingEnabled) {
+            this.mLeftEyeDistortionMesh.mFoveation = this.computeFoveation(this.mLeftEyeViewport,
+                    this.mLeftEyeRenderViewport, this.mLeftFovealViewport,
+                    textureWidthTanAngle, textureHeightTanAngle, renderWidthTanAngle, renderHeightTanAngle);
+            this.mRightEyeDistortionMesh.mFoveation = this.computeFoveation(this.mRightEyeViewport,
+                    this.mRightEyeRenderViewport, this.mRightFovealViewport,
+                    textureWidthTanAngle, textureHeightTanAngle, renderWidthTanAngle, renderHeightTanAngle);
+        }
+        this.mLeftEyeDistortionMesh.mTanAngleTransform = new float[] { textureWidthTanAngle, textureHeightTanAngle,
+                -this.mLeftEyeViewport.eyeX, -this.mLeftEyeViewport.eyeY };
+        this.mRightEyeDistortionMesh.mTanAngleTransform = new float[] { textureWidthTanAngle, textureHeightTanAngle,
+                -this.mRightEyeViewport.eyeX, -this.mRightEyeViewport.eyeY };
         this.mFovsChanged = false;
+        this.mMeshChanged = false;
+        return new int[] { Math.round(renderWidthTanAngle * this.mXPxPerTanAngle), Math.round(renderHeightTanAngle * this.mYPxPerTanAngle) };
+    }
+    
+    private void initializeGLCapabilities() {
+        if (this.mGLCapabilities != null) {
+            return;
+        }
+        this.mGLCapabilities = GLCapabilities.query();
+        if (this.mOwnsGpuFrameTimer) {
+            this.mGpuFrameTimer.onContextCreated(this.mGLCapabilities);
+        }
+        this.mVertexArrayObjectsEnabled = this.mGLCapabilities.supportsVertexArrayObjects();
+        this.mFramebufferInvalidator.setEnabled(this.mGLCapabilities.supportsFramebufferInvalidation());
+        this.mImplicitResolveSupported = MultisampledRenderToTexture.isAvailable(this.mGLCapabilities);
+        this.mRenderTargetPool.setImplicitResolveEnabled(this.mImplicitResolveSupported);
+        this.mGLStateBackup.setVertexArrayObjectsEnabled(this.mVertexArrayObjectsEnabled);
+        this.mGLStateBackupAberration.setVertexArrayObjectsEnabled(this.mVertexArrayObjectsEnabled);
     }
     
     private EyeViewport initViewportForEye(final FieldOfView fov, final float xOffset) {
@@ -260,9 +932,9 @@ public class DistortionRenderer {
     private DistortionMesh createDistortionMesh(final EyeViewport eyeViewport,
                                                 final float textureWidthTanAngle, final float textureHeightTanAngle,
                                                 final float xEyeOffsetTanAngleScreen, final float yEyeOffsetTanAngleScreen) {
-        return new DistortionMesh(this.mHmd.getCardboardDeviceParams().getDistortion(),
-                this.mHmd.getCardboardDeviceParams().getDistortion(),
-                this.mHmd.getCardboardDeviceParams().getDistortion(),
+        final CardboardDeviceParams cdp = this.mHmd.getCardboardDeviceParams();
+        return new DistortionMesh(cdp.getDistortionRed(), cdp.getDistortion(), cdp.getDistortionBlue(),
+                this.getTextureCoordSets(), this.mCompactVertexFormatEnabled,
                 this.mHmd.getScreenParams().getWidthMeters() / this.mMetersPerTanAngle,
                 this.mHmd.getScreenParams().getHeightMeters() / this.mMetersPerTanAngle,
                 xEyeOffsetTanAngleScreen, yEyeOffsetTanAngleScreen,
@@ -270,84 +942,186 @@ public class DistortionRenderer {
                 eyeViewport.eyeX, eyeViewport.eyeY, eyeViewport.x, eyeViewport.y, eyeViewport.width, eyeViewport.height);
     }
     
-    private void renderDistortionMesh(final DistortionMesh mesh, final int textureId) {
-        ProgramHolder holder;
-        if (this.mChromaticAberrationCorrectionEnabled) {
-            holder = this.mProgramHolderAberration;
+    private float[] computeFoveation(final EyeViewport eyeViewport, final EyeViewport peripheralViewport, final EyeViewport fovealViewport,
+                                     final float textureWidthTanAngle, final float textureHeightTanAngle,
+                                     final float renderWidthTanAngle, final float renderHeightTanAngle) {
+        final float fovealX = eyeViewport.eyeX - this.mFovealFraction * (eyeViewport.eyeX - eyeViewport.x);
+        final float fovealY = eyeViewport.eyeY - this.mFovealFraction * (eyeViewport.eyeY - eyeViewport.y);
+        final float marginX = FOVEA_MARGIN_PX / this.mXPxPerTanAngle;
+        final float marginY = FOVEA_MARGIN_PX / this.mYPxPerTanAngle;
+        final float peripheralScale = this.mPeripheralResolutionScale;
+        return new float[] {
+                (fovealX + marginX) / textureWidthTanAngle,
+                (fovealY + marginY) / textureHeightTanAngle,
+                (fovealX + fovealViewport.width - marginX) / textureWidthTanAngle,
+                (fovealY + fovealViewport.height - marginY) / textureHeightTanAngle,
+                textureWidthTanAngle / renderWidthTanAngle,
+                textureHeightTanAngle / renderHeightTanAngle,
+                (fovealViewport.x - fovealX) / renderWidthTanAngle,
+                (fovealViewport.y - fovealY) / renderHeightTanAngle,
+                textureWidthTanAngle * peripheralScale / renderWidthTanAngle,
+                textureHeightTanAngle * peripheralScale / renderHeightTanAngle,
+                (peripheralViewport.x - eyeViewport.x * peripheralScale) / renderWidthTanAngle,
+                (peripheralViewport.y - eyeViewport.y * peripheralScale) / renderHeightTanAngle };
+    }
+    
+    private ProgramHolder getProgramHolder(final int textureCoordSets) {
+        int variant = 0;
+        if (textureCoordSets == 3) {
+            variant |= PROGRAM_VARIANT_ABERRATION;
+        }
+        else if (textureCoordSets == 2) {
+            variant |= PROGRAM_VARIANT_CHANNEL_PAIR;
+        }
+        if (this.mFoveatedRenderingEnabled) {
+            variant |= PROGRAM_VARIANT_FOVEATED;
+        }
+        ProgramHolder holder = this.mProgramHolders[variant];
+        if (holder == null) {
+            holder = this.createProgramHolder(variant);
+            this.mProgramHolders[variant] = holder;
+        }
+        return holder;
+    }
+    
+    private void renderDistortionMesh(final DistortionMesh mesh, final ProgramHolder holder, final int textureId) {
+        if (this.mVertexArrayObjectsEnabled) {
+            this.bindVertexArray(mesh, holder);
         }
         else {
-            holder = this.mProgramHolder;
+            this.setVertexAttributes(mesh, holder);
+        }
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+        GLES20.glUniform1i(holder.uTextureSampler, 0);
+        final RenderTargetPool.RenderTarget target = this.mRenderTarget;
+        if (target != null && target.textureId == textureId) {
+            GLES20.glUniform2f(holder.uTextureCoordScale, this.mResolutionScale * target.usedWidth / target.width,
+                    this.mResolutionScale * target.usedHeight / target.height);
         }
+        else {
+            GLES20.glUniform2f(holder.uTextureCoordScale, this.mResolutionScale, this.mResolutionScale);
+        }
+        if (mesh.mFoveation != null) {
+            GLES20.glUniform4fv(holder.uFoveation, 3, mesh.mFoveation, 0);
+        }
+        if (holder instanceof ProgramHolderChannelPair) {
+            GLES20.glUniform3fv(((ProgramHolderChannelPair)holder).uChannelMask, 1, this.mChannelMask, 0);
+        }
+        GLES20.glDrawElements(GLES20.GL_TRIANGLE_STRIP, mesh.nIndices, GLES20.GL_UNSIGNED_SHORT, 0);
+    }
+    
+    private void bindVertexArray(final DistortionMesh mesh, final ProgramHolder holder) {
+        final boolean aberration = holder instanceof ProgramHolderAberration || holder instanceof ProgramHolderChannelPair;
+        final boolean external = holder instanceof ProgramHolderExternal;
+        int vertexArrayId = aberration ? mesh.mVertexArrayIdAberration : (external ? mesh.mVertexArrayIdExternal : mesh.mVertexArrayId);
+        if (vertexArrayId != 0) {
+            GLES30.glBindVertexArray(vertexArrayId);
+            return;
+        }
+        final int[] vertexArrayIds = { 0 };
+        GLES30.glGenVertexArrays(1, vertexArrayIds, 0);
+        vertexArrayId = vertexArrayIds[0];
+        this.mResourceRegistry.register(GLResourceRegistry.VERTEX_ARRAY, vertexArrayId, 0L);
+        GLES30.glBindVertexArray(vertexArrayId);
+        this.setVertexAttributes(mesh, holder);
+        this.checkGlError("bindVertexArray");
+        if (aberration) {
+            mesh.mVertexArrayIdAberration = vertexArrayId;
+        }
+        else if (external) {
+            mesh.mVertexArrayIdExternal = vertexArrayId;
+        }
+        else {
+            mesh.mVertexArrayId = vertexArrayId;
+        }
+    }
+    
+    private void setVertexAttributes(final DistortionMesh mesh, final ProgramHolder holder) {
+        final int stride = mesh.mStrideBytes;
+        final boolean compact = mesh.mCompact;
+        final int positionType = compact ? GLES20.GL_SHORT : GLES20.GL_FLOAT;
+        final int textureCoordType = compact ? GLES20.GL_UNSIGNED_SHORT : GLES20.GL_FLOAT;
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mesh.mArrayBufferId);
-        GLES20.glVertexAttribPointer(holder.aPosition, 2, GLES20.GL_FLOAT, false, 36, 0 * 4);
+        GLES20.glVertexAttribPointer(holder.aPosition, 2, positionType, compact, stride, mesh.mPositionOffsetBytes);
         GLES20.glEnableVertexAttribArray(holder.aPosition);
-        GLES20.glVertexAttribPointer(holder.aVignette, 1, GLES20.GL_FLOAT, false, 36, 2 * 4);
+        GLES20.glVertexAttribPointer(holder.aVignette, 1, compact ? GLES20.GL_UNSIGNED_BYTE : GLES20.GL_FLOAT, compact, stride, mesh.mVignetteOffsetBytes);
         GLES20.glEnableVertexAttribArray(holder.aVignette);
-        GLES20.glVertexAttribPointer(holder.aBlueTextureCoord, 2, GLES20.GL_FLOAT, false, 36, 7 * 4);
+        GLES20.glVertexAttribPointer(holder.aBlueTextureCoord, 2, textureCoordType, compact, stride, mesh.mBlueTextureCoordOffsetBytes);
         GLES20.glEnableVertexAttribArray(holder.aBlueTextureCoord);
-        if (this.mChromaticAberrationCorrectionEnabled) {
-            GLES20.glVertexAttribPointer(((ProgramHolderAberration)holder).aRedTextureCoord, 2, GLES20.GL_FLOAT, false, 36, 3 * 4);
+        if (holder instanceof ProgramHolderAberration) {
+            GLES20.glVertexAttribPointer(((ProgramHolderAberration)holder).aRedTextureCoord, 2, textureCoordType, compact, stride, mesh.mRedTextureCoordOffsetBytes);
             GLES20.glEnableVertexAttribArray(((ProgramHolderAberration)holder).aRedTextureCoord);
-            GLES20.glVertexAttribPointer(((ProgramHolderAberration)holder).aGreenTextureCoord, 2, GLES20.GL_FLOAT, false, 36, 5 * 4);
+            GLES20.glVertexAttribPointer(((ProgramHolderAberration)holder).aGreenTextureCoord, 2, textureCoordType, compact, stride, mesh.mGreenTextureCoordOffsetBytes);
             GLES20.glEnableVertexAttribArray(((ProgramHolderAberration)holder).aGreenTextureCoord);
         }
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
-        GLES20.glUniform1i(this.mProgramHolder.uTextureSampler, 0);
-        GLES20.glUniform1f(this.mProgramHolder.uTextureCoordScale, this.mResolutionScale);
+        else if (holder instanceof ProgramHolderChannelPair) {
+            GLES20.glVertexAttribPointer(((ProgramHolderChannelPair)holder).aChannelTextureCoord, 2, textureCoordType, compact, stride, mesh.mRedTextureCoordOffsetBytes);
+            GLES20.glEnableVertexAttribArray(((ProgramHolderChannelPair)holder).aChannelTextureCoord);
+        }
         GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mesh.mElementBufferId);
-        GLES20.glDrawElements(GLES20.GL_TRIANGLE_STRIP, mesh.nIndices, GLES20.GL_UNSIGNED_SHORT, 0);
     }
     
     private float computeDistortionScale(final Distortion distortion, final float screenWidthM, final float interpupillaryDistanceM) {
         return distortion.distortionFactor((screenWidthM / 2.0f - interpupillaryDistanceM / 2.0f) / (screenWidthM / 4.0f));
     }
     
-    private int createTexture(final int width, final int height, final int textureFormat, final int textureType) {
-        final int[] textureIds = { 0 };
-        GLES20.glGenTextures(1, textureIds, 0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureIds[0]);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
-        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, textureFormat, width, height, 0, textureFormat, textureType, (Buffer)null);
-        return textureIds[0];
+    private int getSupportedSampleCount() {
+        if (this.mMultisampleCount <= 1) {
+            return 0;
+        }
+        final int maxSamples;
+        if (this.mImplicitResolveSupported) {
+            maxSamples = MultisampledRenderToTexture.getMaxSamples();
+        }
+        else {
+            if (!this.mGLCapabilities.isGles3()) {
+                return 0;
+            }
+            final int[] maxSampleCount = { 0 };
+            GLES20.glGetIntegerv(GLES30.GL_MAX_SAMPLES, maxSampleCount, 0);
+            maxSamples = maxSampleCount[0];
+        }
+        return (maxSamples > 1) ? Math.min(this.mMultisampleCount, maxSamples) : 0;
     }
     
-    private int setupRenderTextureAndRenderbuffer(final int width, final int height) {
-        if (this.mTextureId != -1) {
-            GLES20.glDeleteTextures(1, new int[] { this.mTextureId }, 0);
-        }
-        if (this.mRenderbufferId != -1) {
-            GLES20.glDeleteRenderbuffers(1, new int[] { this.mRenderbufferId }, 0);
+    private int getSupportedDepthFormat() {
+        final boolean gles3 = this.mGLCapabilities.isGles3();
+        switch (this.mDepthStencilFormat) {
+            case CardboardView.DepthStencilFormat.NONE: {
+                return 0;
+            }
+            case CardboardView.DepthStencilFormat.DEPTH_24: {
+                if (gles3 || this.mGLCapabilities.hasExtension("GL_OES_depth24")) {
+                    return GLES30.GL_DEPTH_COMPONENT24;
+                }
+                break;
+            }
+            case CardboardView.DepthStencilFormat.DEPTH_24_STENCIL_8: {
+                if (gles3 || this.mGLCapabilities.hasExtension("GL_OES_packed_depth_stencil")) {
+                    return GLES30.GL_DEPTH24_STENCIL8;
+                }
+                Log.w(TAG, "Packed depth/stencil is not supported, falling back to a 16-bit depth buffer without stencil");
+                break;
+            }
         }
-        if (this.mFramebufferId != -1) {
-            GLES20.glDeleteFramebuffers(1, new int[] { this.mFramebufferId }, 0);
+        return GLES20.GL_DEPTH_COMPONENT16;
+    }
+    
+    private void updateRenderTarget(final int width, final int height, final int maxTextureSize) {
+        final int samples = this.getSupportedSampleCount();
+        final int depthFormat = this.getSupportedDepthFormat();
+        if (this.mRenderTarget != null) {
+            if (!this.mTextureFormatChanged && this.mRenderTargetPool.canReuse(this.mRenderTarget, width, height, this.mTextureFormat, this.mTextureType, depthFormat, samples, maxTextureSize)) {
+                this.mRenderTarget.setUsedSize(width, height);
+                return;
+            }
+            this.mRenderTargetPool.release(this.mRenderTarget);
+            this.mRenderTarget = null;
         }
-        this.mTextureId = this.createTexture(width, height, this.mTextureFormat, this.mTextureType);
+        this.mRenderTarget = this.mRenderTargetPool.acquire(width, height, this.mTextureFormat, this.mTextureType, depthFormat, samples, maxTextureSize);
         this.mTextureFormatChanged = false;
-        this.checkGlError("setupRenderTextureAndRenderbuffer: create texture");
-        final int[] renderbufferIds = { 0 };
-        GLES20.glGenRenderbuffers(1, renderbufferIds, 0);
-        GLES20.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, renderbufferIds[0]);
-        GLES20.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_DEPTH_COMPONENT16, width, height);
-        this.mRenderbufferId = renderbufferIds[0];
-        this.checkGlError("setupRenderTextureAndRenderbuffer: create renderbuffer");
-        final int[] framebufferIds = { 0 };
-        GLES20.glGenFramebuffers(1, framebufferIds, 0);
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebufferIds[0]);
-        this.mFramebufferId = framebufferIds[0];
-        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, this.mTextureId, 0);
-        GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_RENDERBUFFER, renderbufferIds[0]);
-        final int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
-        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
-            final String s = "Framebuffer is not complete: ";
-            final String value = String.valueOf(Integer.toHexString(status));
-            throw new RuntimeException((value.length() != 0) ? s.concat(value) : new String(s));
-        }
-        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
-        return framebufferIds[0];
+        this.checkGlError("updateRenderTarget");
     }
     
     private int loadShader(final int shaderType, final String source) {
@@ -368,12 +1142,20 @@ public class DistortionRenderer {
     }
     
     private int createProgram(final String vertexSource, final String fragmentSource) {
+        if (this.mProgramCache != null) {
+            final int cachedProgram = this.mProgramCache.loadProgram(vertexSource, fragmentSource);
+            if (cachedProgram != 0) {
+                this.mResourceRegistry.register(GLResourceRegistry.PROGRAM, cachedProgram, 0L);
+                return cachedProgram;
+            }
+        }
         final int vertexShader = this.loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
         if (vertexShader == 0) {
             return 0;
         }
         final int pixelShader = this.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
         if (pixelShader == 0) {
+            GLES20.glDeleteShader(vertexShader);
             return 0;
         }
         int program = GLES20.glCreateProgram();
@@ -391,20 +1173,83 @@ public class DistortionRenderer {
                 GLES20.glDeleteProgram(program);
                 program = 0;
             }
+            else if (this.mProgramCache != null) {
+                this.mProgramCache.storeProgram(program, vertexSource, fragmentSource);
+            }
         }
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(pixelShader);
+        this.mResourceRegistry.register(GLResourceRegistry.PROGRAM, program, 0L);
         return program;
     }
     
-    private ProgramHolder createProgramHolder() {
-        return this.createProgramHolder(false);
+    private ProgramHolderExternal createExternalProgramHolder() {
+        final ProgramHolderExternal holder = new ProgramHolderExternal();
+        holder.program = this.createProgram(VERTEX_SHADER_EXTERNAL, FRAGMENT_SHADER_EXTERNAL);
+        if (holder.program == 0) {
+            throw new RuntimeException("Could not create external texture program");
+        }
+        holder.aPosition = this.getAttribLocation(holder.program, "aPosition");
+        holder.aVignette = this.getAttribLocation(holder.program, "aVignette");
+        holder.aBlueTextureCoord = this.getAttribLocation(holder.program, "aBlueTextureCoord");
+        this.mGLStateBackup.addTrackedVertexAttribute(holder.aPosition);
+        this.mGLStateBackup.addTrackedVertexAttribute(holder.aVignette);
+        this.mGLStateBackup.addTrackedVertexAttribute(holder.aBlueTextureCoord);
+        holder.uTextureCoordScale = -1;
+        holder.uFoveation = -1;
+        holder.uTextureSampler = this.getUniformLocation(holder.program, "uTextureSampler");
+        holder.uTanAngleTransform = this.getUniformLocation(holder.program, "uTanAngleTransform");
+        holder.uEyeRotation = this.getUniformLocation(holder.program, "uEyeRotation");
+        holder.uTextureTransform = this.getUniformLocation(holder.program, "uTextureTransform");
+        holder.uLayoutTransform = this.getUniformLocation(holder.program, "uLayoutTransform");
+        return holder;
+    }
+    
+    private int getAttribLocation(final int program, final String name) {
+        final int location = GLES20.glGetAttribLocation(program, name);
+        this.checkGlError("glGetAttribLocation " + name);
+        if (location == -1) {
+            throw new RuntimeException("Could not get attrib location for " + name);
+        }
+        return location;
     }
     
-    private ProgramHolder createProgramHolder(final boolean aberrationCorrected) {
+    private int getUniformLocation(final int program, final String name) {
+        final int location = GLES20.glGetUniformLocation(program, name);
+        this.checkGlError("glGetUniformLocation " + name);
+        if (location == -1) {
+            throw new RuntimeException("Could not get attrib location for " + name);
+        }
+        return location;
+    }
+    
+    private ProgramHolder createProgramHolder(final int variant) {
+        final boolean aberrationCorrected = (variant & PROGRAM_VARIANT_ABERRATION) != 0;
+        final boolean channelPair = (variant & PROGRAM_VARIANT_CHANNEL_PAIR) != 0;
+        final boolean foveated = (variant & PROGRAM_VARIANT_FOVEATED) != 0;
         ProgramHolder holder;
         GLStateBackup state;
-        if (aberrationCorrected) {
+        if (channelPair) {
+            holder = new ProgramHolderChannelPair();
+            if (foveated) {
+                holder.program = this.createProgram(VERTEX_SHADER_CHANNEL_PAIR_FOVEATED, FRAGMENT_SHADER_CHANNEL_PAIR_FOVEATED);
+            }
+            else {
+                holder.program = this.createProgram(VERTEX_SHADER_CHANNEL_PAIR, FRAGMENT_SHADER_CHANNEL_PAIR);
+            }
+            if (holder.program == 0) {
+                throw new RuntimeException("Could not create channel pair program");
+            }
+            state = this.mGLStateBackupAberration;
+        }
+        else if (aberrationCorrected) {
             holder = new ProgramHolderAberration();
-            holder.program = this.createProgram(VERTEX_SHADER_ABERRATION, FRAGMENT_SHADER_ABERRATION);
+            if (foveated) {
+                holder.program = this.createProgram(VERTEX_SHADER_ABERRATION_FOVEATED, FRAGMENT_SHADER_ABERRATION_FOVEATED);
+            }
+            else {
+                holder.program = this.createProgram(VERTEX_SHADER_ABERRATION, FRAGMENT_SHADER_ABERRATION);
+            }
             if (holder.program == 0) {
                 throw new RuntimeException("Could not create aberration-corrected program");
             }
@@ -413,7 +1258,12 @@ public class DistortionRenderer {
         else
         {
             holder = new ProgramHolder();
-            holder.program = this.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+            if (foveated) {
+                holder.program = this.createProgram(VERTEX_SHADER_FOVEATED, FRAGMENT_SHADER_FOVEATED);
+            }
+            else {
+                holder.program = this.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+            }
             if (holder.program == 0) {
                 throw new RuntimeException("Could not create program");
             }
@@ -445,6 +1295,11 @@ public class DistortionRenderer {
             state.addTrackedVertexAttribute(((ProgramHolderAberration)holder).aRedTextureCoord);
             state.addTrackedVertexAttribute(((ProgramHolderAberration)holder).aGreenTextureCoord);
         }
+        else if (channelPair) {
+            ((ProgramHolderChannelPair)holder).aChannelTextureCoord = this.getAttribLocation(holder.program, "aChannelTextureCoord");
+            ((ProgramHolderChannelPair)holder).uChannelMask = this.getUniformLocation(holder.program, "uChannelMask");
+            state.addTrackedVertexAttribute(((ProgramHolderChannelPair)holder).aChannelTextureCoord);
+        }
         holder.aBlueTextureCoord = GLES20.glGetAttribLocation(holder.program, "aBlueTextureCoord");
         this.checkGlError("glGetAttribLocation aBlueTextureCoord");
         if (holder.aBlueTextureCoord == -1) {
@@ -461,6 +1316,14 @@ public class DistortionRenderer {
         if (holder.uTextureSampler == -1) {
             throw new RuntimeException("Could not get attrib location for uTextureSampler");
         }
+        holder.uFoveation = -1;
+        if (foveated) {
+            holder.uFoveation = GLES20.glGetUniformLocation(holder.program, "uFoveation");
+            this.checkGlError("glGetUniformLocation uFoveation");
+            if (holder.uFoveation == -1) {
+                throw new RuntimeException("Could not get attrib location for uFoveation");
+            }
+        }
         return holder;
     }
     
@@ -474,6 +1337,38 @@ public class DistortionRenderer {
         }
     }
     
+    static boolean fitsCompactRange(final float[] vertexData, final int componentsPerVertex) {
+        for (int i = 0; i < vertexData.length; i += componentsPerVertex) {
+            if (Math.abs(vertexData[i + DistortionMesh.DATA_POS_OFFSET]) > 1.0f || Math.abs(vertexData[i + DistortionMesh.DATA_POS_OFFSET + 1]) > 1.0f) {
+                return false;
+            }
+            for (int uv = DistortionMesh.DATA_POS_COMPONENTS + DistortionMesh.DATA_VIGNETTE_COMPONENTS; uv < componentsPerVertex; ++uv) {
+                if (vertexData[i + uv] < 0.0f || vertexData[i + uv] > 1.0f) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    static void putCompactVertex(final ByteBuffer packed, final float[] vertexData, final int offset, final int componentsPerVertex) {
+        packed.putShort(packSignedNormalized(vertexData[offset + DistortionMesh.DATA_POS_OFFSET]));
+        packed.putShort(packSignedNormalized(vertexData[offset + DistortionMesh.DATA_POS_OFFSET + 1]));
+        for (int uv = DistortionMesh.DATA_POS_COMPONENTS + DistortionMesh.DATA_VIGNETTE_COMPONENTS; uv < componentsPerVertex; ++uv) {
+            packed.putShort((short)packUnsignedNormalized(vertexData[offset + uv], 0xFFFF));
+        }
+        packed.put((byte)packUnsignedNormalized(vertexData[offset + DistortionMesh.DATA_VIGNETTE_OFFSET], 0xFF));
+        packed.put((byte)0).put((byte)0).put((byte)0);
+    }
+    
+    private static short packSignedNormalized(final float value) {
+        return (short)Math.round(clamp(value, -1.0f, 1.0f) * 32767.0f);
+    }
+    
+    private static int packUnsignedNormalized(final float value, final int max) {
+        return Math.round(clamp(value, 0.0f, 1.0f) * max);
+    }
+    
     private static float clamp(final float val, final float min, final float max) {
         return Math.max(min, Math.min(max, val));
     }
@@ -486,6 +1381,7 @@ public class DistortionRenderer {
         public int aBlueTextureCoord;
         public int uTextureCoordScale;
         public int uTextureSampler;
+        public int uFoveation;
     }
     
     private class ProgramHolderAberration extends ProgramHolder
@@ -494,6 +1390,20 @@ public class DistortionRenderer {
         public int aGreenTextureCoord;
     }
     
+    private class ProgramHolderChannelPair extends ProgramHolder
+    {
+        public int aChannelTextureCoord;
+        public int uChannelMask;
+    }
+    
+    private class ProgramHolderExternal extends ProgramHolder
+    {
+        public int uTanAngleTransform;
+        public int uEyeRotation;
+        public int uTextureTransform;
+        public int uLayoutTransform;
+    }
+    
     private class EyeViewport
     {
         public float x;
@@ -515,6 +1425,14 @@ public class DistortionRenderer {
         public static final int BYTES_PER_SHORT = 2;
         public static final int COMPONENTS_PER_VERT = 9;
         public static final int DATA_STRIDE_BYTES = 36;
+        public static final int COMPONENTS_PER_VERT_SINGLE_CHANNEL = 5;
+        public static final int DATA_BUV_OFFSET_SINGLE_CHANNEL = 3;
+        public static final int COMPONENTS_PER_VERT_CHANNEL_PAIR = 7;
+        public static final int DATA_BUV_OFFSET_CHANNEL_PAIR = 5;
+        public static final int COMPACT_POS_OFFSET_BYTES = 0;
+        public static final int COMPACT_UV_OFFSET_BYTES = 4;
+        public static final int COMPACT_UV_STRIDE_BYTES = 4;
+        public static final int COMPACT_VIGNETTE_STRIDE_BYTES = 4;
         public static final int DATA_POS_OFFSET = 0;
         public static final int DATA_POS_COMPONENTS = 2;
         public static final int DATA_VIGNETTE_OFFSET = 2;
@@ -529,10 +1447,25 @@ public class DistortionRenderer {
         public int nIndices;
         public int mArrayBufferId;
         public int mElementBufferId;
+        public int mVertexArrayId;
+        public int mVertexArrayIdAberration;
+        public int mVertexArrayIdExternal;
+        public float[] mFoveation;
+        public float[] mTanAngleTransform;
+        public boolean mCompact;
+        public int mStrideBytes;
+        public int mBlueTextureCoordOffset;
+        public int mPositionOffsetBytes;
+        public int mVignetteOffsetBytes;
+        public int mRedTextureCoordOffsetBytes;
+        public int mGreenTextureCoordOffsetBytes;
+        public int mBlueTextureCoordOffsetBytes;
         
         public DistortionMesh(final Distortion distortionRed,
                               final Distortion distortionGreen,
                               final Distortion distortionBlue,
+                              final int textureCoordSets,
+                              final boolean compactVertices,
                               final float screenWidth, final float screenHeight,
                               final float xEyeOffsetScreen, final float yEyeOffsetScreen,
                               final float textureWidth, final float textureHeight,
@@ -542,7 +1475,22 @@ public class DistortionRenderer {
             super();
             this.mArrayBufferId = -1;
             this.mElementBufferId = -1;
-            final float[] vertexData = new float[14400];
+            int componentsPerVertex;
+            if (textureCoordSets == 3) {
+                componentsPerVertex = COMPONENTS_PER_VERT;
+                this.mBlueTextureCoordOffset = DATA_BUV_OFFSET;
+            }
+            else if (textureCoordSets == 2) {
+                componentsPerVertex = COMPONENTS_PER_VERT_CHANNEL_PAIR;
+                this.mBlueTextureCoordOffset = DATA_BUV_OFFSET_CHANNEL_PAIR;
+            }
+            else {
+                componentsPerVertex = COMPONENTS_PER_VERT_SINGLE_CHANNEL;
+                this.mBlueTextureCoordOffset = DATA_BUV_OFFSET_SINGLE_CHANNEL;
+            }
+            this.mStrideBytes = componentsPerVertex * BYTES_PER_FLOAT;
+            final Distortion distortionChannel = distortionRed.equals(distortionBlue) ? distortionGreen : distortionRed;
+            final float[] vertexData = new float[ROWS * COLS * componentsPerVertex];
             short vertexOffset = 0;
             for (int row = 0; row < ROWS; ++row) {
                 for (int col = 0; col < COLS; ++col) {
@@ -557,12 +1505,6 @@ public class DistortionRenderer {
                     final float uScreen = (xScreen + xEyeOffsetScreen) / screenWidth;
                     final float vScreen = (yScreen + yEyeOffsetScreen) / screenHeight;
                     final float rScreen = rTexture * textureToScreenBlue;
-                    final float screenToTextureGreen = (rScreen > 0.0f) ? distortionGreen.distortionFactor(rScreen) : 1.0f;
-                    final float uTextureGreen = (xScreen * screenToTextureGreen + xEyeOffsetTexture) / textureWidth;
-                    final float vTextureGreen = (yScreen * screenToTextureGreen + yEyeOffsetTexture) / textureHeight;
-                    final float screenToTextureRed = (rScreen > 0.0f) ? distortionRed.distortionFactor(rScreen) : 1.0f;
-                    final float uTextureRed = (xScreen * screenToTextureRed + xEyeOffsetTexture) / textureWidth;
-                    final float vTextureRed = (yScreen * screenToTextureRed + yEyeOffsetTexture) / textureHeight;
                     final float vignetteSizeTexture = VIGNETTE_SIZE_TAN_ANGLE / textureToScreenBlue;
                     final float dxTexture = xTexture + xEyeOffsetTexture - clamp(xTexture + xEyeOffsetTexture, viewportXTexture + vignetteSizeTexture, viewportXTexture + viewportWidthTexture - vignetteSizeTexture);
                     final float dyTexture = yTexture + yEyeOffsetTexture - clamp(yTexture + yEyeOffsetTexture, viewportYTexture + vignetteSizeTexture, viewportYTexture + viewportHeightTexture - vignetteSizeTexture);
@@ -577,13 +1519,22 @@ public class DistortionRenderer {
                     vertexData[vertexOffset + 0] = 2.0f * uScreen - 1.0f;
                     vertexData[vertexOffset + 1] = 2.0f * vScreen - 1.0f;
                     vertexData[vertexOffset + 2] = vignette;
-                    vertexData[vertexOffset + 3] = uTextureRed;
-                    vertexData[vertexOffset + 4] = vTextureRed;
-                    vertexData[vertexOffset + 5] = uTextureGreen;
-                    vertexData[vertexOffset + 6] = vTextureGreen;
-                    vertexData[vertexOffset + 7] = uTextureBlue;
-                    vertexData[vertexOffset + 8] = vTextureBlue;
-                    vertexOffset += COMPONENTS_PER_VERT;
+                    if (textureCoordSets == 2) {
+                        final float screenToTextureChannel = (rScreen > 0.0f) ? distortionChannel.distortionFactor(rScreen) : 1.0f;
+                        vertexData[vertexOffset + 3] = (xScreen * screenToTextureChannel + xEyeOffsetTexture) / textureWidth;
+                        vertexData[vertexOffset + 4] = (yScreen * screenToTextureChannel + yEyeOffsetTexture) / textureHeight;
+                    }
+                    else if (textureCoordSets == 3) {
+                        final float screenToTextureGreen = (rScreen > 0.0f) ? distortionGreen.distortionFactor(rScreen) : 1.0f;
+                        final float screenToTextureRed = (rScreen > 0.0f) ? distortionRed.distortionFactor(rScreen) : 1.0f;
+                        vertexData[vertexOffset + 3] = (xScreen * screenToTextureRed + xEyeOffsetTexture) / textureWidth;
+                        vertexData[vertexOffset + 4] = (yScreen * screenToTextureRed + yEyeOffsetTexture) / textureHeight;
+                        vertexData[vertexOffset + 5] = (xScreen * screenToTextureGreen + xEyeOffsetTexture) / textureWidth;
+                        vertexData[vertexOffset + 6] = (yScreen * screenToTextureGreen + yEyeOffsetTexture) / textureHeight;
+                    }
+                    vertexData[vertexOffset + this.mBlueTextureCoordOffset] = uTextureBlue;
+                    vertexData[vertexOffset + this.mBlueTextureCoordOffset + 1] = vTextureBlue;
+                    vertexOffset += componentsPerVertex;
                 }
             }
             this.nIndices = 3158;
@@ -611,8 +1562,33 @@ public class DistortionRenderer {
                 }
                 vertexOffset += 40;
             }
-            final FloatBuffer vertexBuffer = ByteBuffer.allocateDirect(vertexData.length * BYTES_PER_FLOAT).order(ByteOrder.nativeOrder()).asFloatBuffer();
-            vertexBuffer.put(vertexData).position(0);
+            Buffer vertexBuffer;
+            int vertexBufferSize;
+            this.mCompact = (compactVertices && fitsCompactRange(vertexData, componentsPerVertex));
+            if (this.mCompact) {
+                final int textureCoordPairs = (componentsPerVertex - DATA_POS_COMPONENTS - DATA_VIGNETTE_COMPONENTS) / DATA_UV_COMPONENTS;
+                this.mStrideBytes = COMPACT_UV_OFFSET_BYTES + textureCoordPairs * COMPACT_UV_STRIDE_BYTES + COMPACT_VIGNETTE_STRIDE_BYTES;
+                this.mPositionOffsetBytes = COMPACT_POS_OFFSET_BYTES;
+                this.mRedTextureCoordOffsetBytes = COMPACT_UV_OFFSET_BYTES;
+                this.mGreenTextureCoordOffsetBytes = COMPACT_UV_OFFSET_BYTES + COMPACT_UV_STRIDE_BYTES;
+                this.mBlueTextureCoordOffsetBytes = COMPACT_UV_OFFSET_BYTES + (textureCoordPairs - 1) * COMPACT_UV_STRIDE_BYTES;
+                this.mVignetteOffsetBytes = COMPACT_UV_OFFSET_BYTES + textureCoordPairs * COMPACT_UV_STRIDE_BYTES;
+                final ByteBuffer packed = ByteBuffer.allocateDirect(ROWS * COLS * this.mStrideBytes).order(ByteOrder.nativeOrder());
+                for (int i = 0; i < vertexData.length; i += componentsPerVertex) {
+                    putCompactVertex(packed, vertexData, i, componentsPerVertex);
+                }
+                vertexBuffer = packed.position(0);
+                vertexBufferSize = packed.capacity();
+            }
+            else {
+                this.mPositionOffsetBytes = DATA_POS_OFFSET * BYTES_PER_FLOAT;
+                this.mVignetteOffsetBytes = DATA_VIGNETTE_OFFSET * BYTES_PER_FLOAT;
+                this.mRedTextureCoordOffsetBytes = DATA_RUV_OFFSET * BYTES_PER_FLOAT;
+                this.mGreenTextureCoordOffsetBytes = DATA_GUV_OFFSET * BYTES_PER_FLOAT;
+                this.mBlueTextureCoordOffsetBytes = this.mBlueTextureCoordOffset * BYTES_PER_FLOAT;
+                vertexBuffer = ByteBuffer.allocateDirect(vertexData.length * BYTES_PER_FLOAT).order(ByteOrder.nativeOrder()).asFloatBuffer().put(vertexData).position(0);
+                vertexBufferSize = vertexData.length * BYTES_PER_FLOAT;
+            }
             final ShortBuffer indexBuffer = ByteBuffer.allocateDirect(indexData.length * BYTES_PER_SHORT).order(ByteOrder.nativeOrder()).asShortBuffer();
             indexBuffer.put(indexData).position(0);
             final int[] bufferIds = new int[2];
@@ -620,11 +1596,36 @@ public class DistortionRenderer {
             this.mArrayBufferId = bufferIds[0];
             this.mElementBufferId = bufferIds[1];
             GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.mArrayBufferId);
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vertexData.length * BYTES_PER_FLOAT, (Buffer)vertexBuffer, GLES20.GL_STATIC_DRAW);
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vertexBufferSize, vertexBuffer, GLES20.GL_STATIC_DRAW);
             GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, this.mElementBufferId);
             GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexData.length * BYTES_PER_SHORT, (Buffer)indexBuffer, GLES20.GL_STATIC_DRAW);
             GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
             GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+            DistortionRenderer.this.mResourceRegistry.register(GLResourceRegistry.BUFFER, this.mArrayBufferId, vertexBufferSize);
+            DistortionRenderer.this.mResourceRegistry.register(GLResourceRegistry.BUFFER, this.mElementBufferId, indexData.length * BYTES_PER_SHORT);
+        }
+        
+        void delete() {
+            this.deleteVertexArrays();
+            DistortionRenderer.this.mResourceRegistry.delete(GLResourceRegistry.BUFFER, this.mArrayBufferId);
+            DistortionRenderer.this.mResourceRegistry.delete(GLResourceRegistry.BUFFER, this.mElementBufferId);
+            this.mArrayBufferId = 0;
+            this.mElementBufferId = 0;
+        }
+        
+        void deleteVertexArrays() {
+            if (this.mVertexArrayId != 0) {
+                DistortionRenderer.this.mResourceRegistry.delete(GLResourceRegistry.VERTEX_ARRAY, this.mVertexArrayId);
+                this.mVertexArrayId = 0;
+            }
+            if (this.mVertexArrayIdAberration != 0) {
+                DistortionRenderer.this.mResourceRegistry.delete(GLResourceRegistry.VERTEX_ARRAY, this.mVertexArrayIdAberration);
+                this.mVertexArrayIdAberration = 0;
+            }
+            if (this.mVertexArrayIdExternal != 0) {
+                DistortionRenderer.this.mResourceRegistry.delete(GLResourceRegistry.VERTEX_ARRAY, this.mVertexArrayIdExternal);
+                this.mVertexArrayIdExternal = 0;
+            }
         }
     }
 }
@@ -0,0 +1,106 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.EGL14;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLSurfaceView;
+import android.os.Build;
+import android.util.Log;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLContext;
+
+class EGLHelper {
+    private static final String TAG = "EGLHelper";
+    private static final int EGL_CONTEXT_CLIENT_VERSION = 0x3098;
+    private static final int EGL_CONTEXT_PRIORITY_LEVEL_IMG = 0x3100;
+    private static final int EGL_CONTEXT_PRIORITY_HIGH_IMG = 0x3101;
+    private boolean mPresentationTimeSupported;
+    
+    EGLHelper() {
+        super();
+    }
+    
+    void onContextCreated() {
+        this.mPresentationTimeSupported = false;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return;
+        }
+        final EGLDisplay display = EGL14.eglGetCurrentDisplay();
+        if (display == EGL14.EGL_NO_DISPLAY) {
+            return;
+        }
+        final String extensions = EGL14.eglQueryString(display, EGL10.EGL_EXTENSIONS);
+        this.mPresentationTimeSupported = extensions != null && extensions.contains("EGL_ANDROID_presentation_time");
+    }
+    
+    boolean setSwapInterval(final int interval) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return false;
+        }
+        final EGLDisplay display = EGL14.eglGetCurrentDisplay();
+        if (display == EGL14.EGL_NO_DISPLAY) {
+            return false;
+        }
+        return EGL14.eglSwapInterval(display, interval);
+    }
+    
+    boolean setPresentationTime(final long timeNanos) {
+        if (!this.mPresentationTimeSupported) {
+            return false;
+        }
+        final EGLDisplay display = EGL14.eglGetCurrentDisplay();
+        final EGLSurface surface = EGL14.eglGetCurrentSurface(EGL14.EGL_DRAW);
+        if (display == EGL14.EGL_NO_DISPLAY || surface == EGL14.EGL_NO_SURFACE) {
+            return false;
+        }
+        return EGLExt.eglPresentationTimeANDROID(display, surface, timeNanos);
+    }
+    
+    static class ContextFactory implements GLSurfaceView.EGLContextFactory {
+        private volatile int mClientVersion;
+        private volatile boolean mHighPriority;
+        
+        ContextFactory(final int clientVersion) {
+            super();
+            this.mClientVersion = clientVersion;
+        }
+        
+        void setClientVersion(final int clientVersion) {
+            this.mClientVersion = clientVersion;
+        }
+        
+        void setHighPriority(final boolean highPriority) {
+            this.mHighPriority = highPriority;
+        }
+        
+        @Override
+        public EGLContext createContext(final EGL10 egl, final javax.microedition.khronos.egl.EGLDisplay display, final EGLConfig config) {
+            if (this.mHighPriority) {
+                final String extensions = egl.eglQueryString(display, EGL10.EGL_EXTENSIONS);
+                if (extensions != null && extensions.contains("EGL_IMG_context_priority")) {
+                    final int[] attribs = { EGL_CONTEXT_CLIENT_VERSION, this.mClientVersion,
+                            EGL_CONTEXT_PRIORITY_LEVEL_IMG, EGL_CONTEXT_PRIORITY_HIGH_IMG, EGL10.EGL_NONE };
+                    final EGLContext context = egl.eglCreateContext(display, config, EGL10.EGL_NO_CONTEXT, attribs);
+                    if (context != null && context != EGL10.EGL_NO_CONTEXT) {
+                        return context;
+                    }
+                    Log.w(TAG, "Could not create a high priority EGL context, falling back to default priority");
+                }
+            }
+            final int[] attribs = { EGL_CONTEXT_CLIENT_VERSION, this.mClientVersion, EGL10.EGL_NONE };
+            return egl.eglCreateContext(display, config, EGL10.EGL_NO_CONTEXT, attribs);
+        }
+        
+        @Override
+        public void destroyContext(final EGL10 egl, final javax.microedition.khronos.egl.EGLDisplay display, final EGLContext context) {
+            if (!egl.eglDestroyContext(display, context)) {
+                final String value = String.valueOf(Integer.toHexString(egl.eglGetError()));
+                final String s = "eglDestroyContext failed: ";
+                Log.e(TAG, (value.length() != 0) ? s.concat(value) : new String(s));
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ public class Eye {
     private final FieldOfView mFov;
     private volatile boolean mProjectionChanged;
     private float[] mPerspective;
+    private FieldOfView mPerspectiveFov;
     private float mLastZNear;
     private float mLastZFar;
     
@@ -33,8 +34,14 @@ public class Eye {
         }
         if (this.mPerspective == null) {
             this.mPerspective = new float[16];
+            this.mPerspectiveFov = new FieldOfView();
+        }
+        else if (this.mLastZNear == zNear && this.mLastZFar == zFar && this.mPerspectiveFov.equals(this.mFov)) {
+            this.mProjectionChanged = false;
+            return this.mPerspective;
         }
         this.getFov().toPerspectiveMatrix(zNear, zFar, this.mPerspective, 0);
+        this.mPerspectiveFov.copy(this.mFov);
         this.mLastZNear = zNear;
         this.mLastZFar = zFar;
         this.mProjectionChanged = false;
@@ -53,6 +60,10 @@ public class Eye {
         this.mProjectionChanged = true;
     }
     
+    boolean isProjectionChanged() {
+        return this.mProjectionChanged;
+    }
+    
     public abstract static class Type {
         public static final int MONOCULAR = 0;
         public static final int LEFT = 1;
@@ -0,0 +1,61 @@
+package com.google.vrtoolkit.cardboard;
+
+public class FrameInfo {
+    private long mFrameIndex;
+    private long mFrameStartNanos;
+    private long mPredictedDisplayTimeNanos;
+    private long mFrameDeltaNanos;
+    private long mPreviousFrameCpuNanos;
+    private long mGpuFrameNanos;
+    private long mGpuFrameAge;
+    
+    FrameInfo() {
+        super();
+        this.mGpuFrameNanos = -1L;
+        this.mGpuFrameAge = -1L;
+    }
+    
+    void set(final long frameIndex, final long frameStartNanos, final long predictedDisplayTimeNanos, final long frameDeltaNanos,
+             final long previousFrameCpuNanos, final long gpuFrameNanos, final long gpuFrameAge) {
+        this.mFrameIndex = frameIndex;
+        this.mFrameStartNanos = frameStartNanos;
+        this.mPredictedDisplayTimeNanos = predictedDisplayTimeNanos;
+        this.mFrameDeltaNanos = frameDeltaNanos;
+        this.mPreviousFrameCpuNanos = previousFrameCpuNanos;
+        this.mGpuFrameNanos = gpuFrameNanos;
+        this.mGpuFrameAge = gpuFrameAge;
+    }
+    
+    public long getFrameIndex() {
+        return this.mFrameIndex;
+    }
+    
+    public long getFrameStartNanos() {
+        return this.mFrameStartNanos;
+    }
+    
+    public long getPredictedDisplayTimeNanos() {
+        return this.mPredictedDisplayTimeNanos;
+    }
+    
+    public long getFrameDeltaNanos() {
+        return this.mFrameDeltaNanos;
+    }
+    
+    public long getPreviousFrameCpuNanos() {
+        return this.mPreviousFrameCpuNanos;
+    }
+    
+    public long getGpuFrameNanos() {
+        return this.mGpuFrameNanos;
+    }
+    
+    public long getGpuFrameAge() {
+        return this.mGpuFrameAge;
+    }
+    
+    @Override
+    public String toString() {
+        return new StringBuilder(176).append("{ frame: ").append(this.mFrameIndex).append(", start: ").append(this.mFrameStartNanos).append(", display: ").append(this.mPredictedDisplayTimeNanos).append(", delta: ").append(this.mFrameDeltaNanos).append(", cpu: ").append(this.mPreviousFrameCpuNanos).append(", gpu: ").append(this.mGpuFrameNanos).append(", gpu age: ").append(this.mGpuFrameAge).append(" }").toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.google.vrtoolkit.cardboard;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class FrameParamsBuffer {
+    private static final int BUFFER_COUNT = 3;
+    private static final int EYE_COUNT = 3;
+    private static final int MATRIX_SIZE = 16;
+    private static final int FOV_SIZE = 4;
+    private static final int VIEWPORT_SIZE = 4;
+    private Snapshot[] mSnapshots;
+    private volatile Snapshot mPublished;
+    private volatile long mFrameIndex;
+    
+    FrameParamsBuffer() {
+        super();
+        this.mSnapshots = new Snapshot[BUFFER_COUNT];
+        for (int i = 0; i < BUFFER_COUNT; ++i) {
+            this.mSnapshots[i] = new Snapshot();
+        }
+    }
+    
+    void publish(final HeadTransform head, final Eye leftEye, final Eye rightEye, final Eye monocular) {
+        final Snapshot snapshot = this.acquireFreeSnapshot();
+        final long frameIndex = this.mFrameIndex + 1L;
+        System.arraycopy(head.getHeadView(), 0, snapshot.mHeadView, 0, MATRIX_SIZE);
+        snapshot.write(0, leftEye);
+        snapshot.write(1, rightEye);
+        snapshot.write(2, monocular);
+        snapshot.mFrameIndex = frameIndex;
+        this.mPublished = snapshot;
+        this.mFrameIndex = frameIndex;
+    }
+    
+    long read(final HeadTransform head, final Eye leftEye, final Eye rightEye, final Eye monocular) {
+        final Snapshot snapshot = this.acquirePublishedSnapshot();
+        if (snapshot == null) {
+            return 0L;
+        }
+        try {
+            if (head != null) {
+                System.arraycopy(snapshot.mHeadView, 0, head.getHeadView(), 0, MATRIX_SIZE);
+            }
+            if (snapshot.read(0, leftEye)) {
+                leftEye.setProjectionChanged();
+            }
+            if (snapshot.read(1, rightEye)) {
+                rightEye.setProjectionChanged();
+            }
+            if (snapshot.read(2, monocular)) {
+                monocular.setProjectionChanged();
+            }
+            return snapshot.mFrameIndex;
+        }
+        finally {
+            snapshot.mReaders.decrementAndGet();
+        }
+    }
+    
+    long getFrameIndex() {
+        return this.mFrameIndex;
+    }
+    
+    private Snapshot acquirePublishedSnapshot() {
+        while (true) {
+            final Snapshot snapshot = this.mPublished;
+            if (snapshot == null) {
+                return null;
+            }
+            snapshot.mReaders.incrementAndGet();
+            if (this.mPublished == snapshot) {
+                return snapshot;
+            }
+            snapshot.mReaders.decrementAndGet();
+        }
+    }
+    
+    private Snapshot acquireFreeSnapshot() {
+        final Snapshot published = this.mPublished;
+        for (final Snapshot snapshot : this.mSnapshots) {
+            if (snapshot != published && snapshot.mReaders.get() == 0) {
+                return snapshot;
+            }
+        }
+        final Snapshot[] snapshots = new Snapshot[this.mSnapshots.length + 1];
+        System.arraycopy(this.mSnapshots, 0, snapshots, 0, this.mSnapshots.length);
+        final Snapshot snapshot = new Snapshot();
+        snapshots[this.mSnapshots.length] = snapshot;
+        this.mSnapshots = snapshots;
+        return snapshot;
+    }
+    
+    private static class Snapshot {
+        final AtomicInteger mReaders;
+        long mFrameIndex;
+        final float[] mHeadView;
+        final float[] mEyeViews;
+        final float[] mFovs;
+        final int[] mViewports;
+        
+        Snapshot() {
+            super();
+            this.mReaders = new AtomicInteger();
+            this.mHeadView = new float[MATRIX_SIZE];
+            this.mEyeViews = new float[EYE_COUNT * MATRIX_SIZE];
+            this.mFovs = new float[EYE_COUNT * FOV_SIZE];
+            this.mViewports = new int[EYE_COUNT * VIEWPORT_SIZE];
+        }
+        
+        void write(final int index, final Eye eye) {
+            System.arraycopy(eye.getEyeView(), 0, this.mEyeViews, index * MATRIX_SIZE, MATRIX_SIZE);
+            final FieldOfView fov = eye.getFov();
+            final int fovOffset = index * FOV_SIZE;
+            this.mFovs[fovOffset] = fov.getLeft();
+            this.mFovs[fovOffset + 1] = fov.getRight();
+            this.mFovs[fovOffset + 2] = fov.getBottom();
+            this.mFovs[fovOffset + 3] = fov.getTop();
+            eye.getViewport().getAsArray(this.mViewports, index * VIEWPORT_SIZE);
+        }
+        
+        boolean read(final int index, final Eye eye) {
+            if (eye == null) {
+                return false;
+            }
+            System.arraycopy(this.mEyeViews, index * MATRIX_SIZE, eye.getEyeView(), 0, MATRIX_SIZE);
+            final int viewportOffset = index * VIEWPORT_SIZE;
+            eye.getViewport().setViewport(this.mViewports[viewportOffset], this.mViewports[viewportOffset + 1],
+                    this.mViewports[viewportOffset + 2], this.mViewports[viewportOffset + 3]);
+            final FieldOfView fov = eye.getFov();
+            final int fovOffset = index * FOV_SIZE;
+            if (fov.getLeft() == this.mFovs[fovOffset] && fov.getRight() == this.mFovs[fovOffset + 1]
+                    && fov.getBottom() == this.mFovs[fovOffset + 2] && fov.getTop() == this.mFovs[fovOffset + 3]) {
+                return false;
+            }
+            fov.setLeft(this.mFovs[fovOffset]);
+            fov.setRight(this.mFovs[fovOffset + 1]);
+            fov.setBottom(this.mFovs[fovOffset + 2]);
+            fov.setTop(this.mFovs[fovOffset + 3]);
+            return true;
+        }
+    }
+}
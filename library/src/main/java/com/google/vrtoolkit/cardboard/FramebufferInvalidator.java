@@ -0,0 +1,60 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+class FramebufferInvalidator {
+    static final int[] OFFSCREEN_ATTACHMENTS = { GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_STENCIL_ATTACHMENT };
+    static final int[] OFFSCREEN_DEPTH_STENCIL_ATTACHMENTS = { GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_STENCIL_ATTACHMENT };
+    static final int[] DEFAULT_FRAMEBUFFER_ANCILLARY_ATTACHMENTS = { GLES30.GL_DEPTH, GLES30.GL_STENCIL };
+    private final Backend mBackend;
+    private boolean mEnabled;
+    
+    FramebufferInvalidator() {
+        this(new GLBackend());
+    }
+    
+    FramebufferInvalidator(final Backend backend) {
+        super();
+        this.mBackend = backend;
+    }
+    
+    void setEnabled(final boolean enabled) {
+        this.mEnabled = enabled;
+    }
+    
+    void beginOffscreenPass() {
+        this.invalidate(GLES20.GL_FRAMEBUFFER, OFFSCREEN_DEPTH_STENCIL_ATTACHMENTS);
+    }
+    
+    void endOffscreenPass() {
+        this.invalidate(GLES20.GL_FRAMEBUFFER, OFFSCREEN_DEPTH_STENCIL_ATTACHMENTS);
+    }
+    
+    void endResolve() {
+        this.invalidate(GLES30.GL_READ_FRAMEBUFFER, OFFSCREEN_ATTACHMENTS);
+    }
+    
+    void endFrame(final int framebufferId) {
+        if (framebufferId == 0) {
+            this.invalidate(GLES20.GL_FRAMEBUFFER, DEFAULT_FRAMEBUFFER_ANCILLARY_ATTACHMENTS);
+        }
+    }
+    
+    private void invalidate(final int target, final int[] attachments) {
+        if (this.mEnabled) {
+            this.mBackend.invalidateFramebuffer(target, attachments);
+        }
+    }
+    
+    interface Backend {
+        void invalidateFramebuffer(int p0, int[] p1);
+    }
+    
+    private static class GLBackend implements Backend {
+        @Override
+        public void invalidateFramebuffer(final int target, final int[] attachments) {
+            GLES30.glInvalidateFramebuffer(target, attachments.length, attachments, 0);
+        }
+    }
+}
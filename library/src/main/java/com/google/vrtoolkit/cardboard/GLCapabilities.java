@@ -0,0 +1,67 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.os.Build;
+import android.util.Log;
+
+class GLCapabilities {
+    private static final String TAG = "GLCapabilities";
+    private static final String VERSION_PREFIX = "OpenGL ES ";
+    private final int mMajorVersion;
+    private final int mMinorVersion;
+    private final String mExtensions;
+    
+    GLCapabilities(final String version, final String extensions) {
+        super();
+        int major = 2;
+        int minor = 0;
+        if (version != null && version.startsWith(VERSION_PREFIX)) {
+            final int start = VERSION_PREFIX.length();
+            final int dot = version.indexOf('.', start);
+            if (dot > start && dot + 1 < version.length()) {
+                try {
+                    major = Integer.parseInt(version.substring(start, dot));
+                    minor = Character.digit(version.charAt(dot + 1), 10);
+                }
+                catch (NumberFormatException e) {
+                    Log.w(TAG, new StringBuilder().append("Could not parse GL version: ").append(version).toString());
+                }
+            }
+        }
+        this.mMajorVersion = major;
+        this.mMinorVersion = Math.max(minor, 0);
+        this.mExtensions = (extensions != null) ? (" " + extensions + " ") : "";
+    }
+    
+    static GLCapabilities query() {
+        return new GLCapabilities(GLES20.glGetString(GLES20.GL_VERSION), GLES20.glGetString(GLES20.GL_EXTENSIONS));
+    }
+    
+    int getMajorVersion() {
+        return this.mMajorVersion;
+    }
+    
+    int getMinorVersion() {
+        return this.mMinorVersion;
+    }
+    
+    boolean hasExtension(final String extension) {
+        return this.mExtensions.contains(" " + extension + " ");
+    }
+    
+    boolean isGles3() {
+        return this.mMajorVersion >= 3 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+    
+    boolean supportsVertexArrayObjects() {
+        return this.isGles3();
+    }
+    
+    boolean supportsInstancedStereo() {
+        return this.isGles3();
+    }
+    
+    boolean supportsFramebufferInvalidation() {
+        return this.isGles3();
+    }
+}
@@ -0,0 +1,137 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.util.Log;
+
+import java.util.HashMap;
+
+class GLResourceRegistry {
+    private static final String TAG = "GLResourceRegistry";
+    static final int BUFFER = CardboardView.GLResourceType.BUFFER;
+    static final int TEXTURE = CardboardView.GLResourceType.TEXTURE;
+    static final int RENDERBUFFER = CardboardView.GLResourceType.RENDERBUFFER;
+    static final int FRAMEBUFFER = CardboardView.GLResourceType.FRAMEBUFFER;
+    static final int PROGRAM = CardboardView.GLResourceType.PROGRAM;
+    static final int VERTEX_ARRAY = CardboardView.GLResourceType.VERTEX_ARRAY;
+    private static final int TYPE_COUNT = 6;
+    private final HashMap<Long, Long> mResourceBytes;
+    private final int[] mLiveCounts;
+    private long mLiveBytes;
+    
+    GLResourceRegistry() {
+        super();
+        this.mResourceBytes = new HashMap<Long, Long>();
+        this.mLiveCounts = new int[TYPE_COUNT];
+    }
+    
+    synchronized void register(final int type, final int id, final long bytes) {
+        if (id == 0) {
+            return;
+        }
+        final Long previous = this.mResourceBytes.put(getKey(type, id), bytes);
+        if (previous != null) {
+            this.mLiveBytes -= previous;
+        }
+        else {
+            ++this.mLiveCounts[type];
+        }
+        this.mLiveBytes += bytes;
+    }
+    
+    synchronized void unregister(final int type, final int id) {
+        final Long bytes = this.mResourceBytes.remove(getKey(type, id));
+        if (bytes != null) {
+            --this.mLiveCounts[type];
+            this.mLiveBytes -= bytes;
+        }
+    }
+    
+    void delete(final int type, final int id) {
+        if (id == 0) {
+            return;
+        }
+        final int[] ids = { id };
+        switch (type) {
+            case BUFFER: {
+                GLES20.glDeleteBuffers(1, ids, 0);
+                break;
+            }
+            case TEXTURE: {
+                GLES20.glDeleteTextures(1, ids, 0);
+                break;
+            }
+            case RENDERBUFFER: {
+                GLES20.glDeleteRenderbuffers(1, ids, 0);
+                break;
+            }
+            case FRAMEBUFFER: {
+                GLES20.glDeleteFramebuffers(1, ids, 0);
+                break;
+            }
+            case PROGRAM: {
+                GLES20.glDeleteProgram(id);
+                break;
+            }
+            case VERTEX_ARRAY: {
+                GLES30.glDeleteVertexArrays(1, ids, 0);
+                break;
+            }
+            default: {
+                throw new IllegalArgumentException("Unknown GL resource type");
+            }
+        }
+        this.unregister(type, id);
+    }
+    
+    synchronized void abandon() {
+        if (!this.mResourceBytes.isEmpty()) {
+            Log.w(TAG, new StringBuilder(64).append(this.mResourceBytes.size()).append(" GL resources were lost with the previous context").toString());
+        }
+        this.mResourceBytes.clear();
+        for (int i = 0; i < TYPE_COUNT; ++i) {
+            this.mLiveCounts[i] = 0;
+        }
+        this.mLiveBytes = 0L;
+    }
+    
+    synchronized int getLiveCount(final int type) {
+        if (type < 0 || type >= TYPE_COUNT) {
+            throw new IllegalArgumentException("Unknown GL resource type");
+        }
+        return this.mLiveCounts[type];
+    }
+    
+    synchronized long getLiveBytes() {
+        return this.mLiveBytes;
+    }
+    
+    static int getBytesPerPixel(final int format, final int type) {
+        switch (type) {
+            case GLES20.GL_UNSIGNED_SHORT_5_6_5:
+            case GLES20.GL_UNSIGNED_SHORT_4_4_4_4:
+            case GLES20.GL_UNSIGNED_SHORT_5_5_5_1: {
+                return 2;
+            }
+        }
+        switch (format) {
+            case GLES20.GL_RGB565:
+            case GLES20.GL_RGBA4:
+            case GLES20.GL_RGB5_A1:
+            case GLES20.GL_DEPTH_COMPONENT16: {
+                return 2;
+            }
+            case GLES20.GL_RGB:
+            case GLES30.GL_RGB8: {
+                return 3;
+            }
+            default: {
+                return 4;
+            }
+        }
+    }
+    
+    private static long getKey(final int type, final int id) {
+        return ((long)type << 32) | (id & 0xFFFFFFFFL);
+    }
+}
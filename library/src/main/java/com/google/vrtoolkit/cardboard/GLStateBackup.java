@@ -1,15 +1,37 @@
 package com.google.vrtoolkit.cardboard;
 
 import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.util.Log;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 class GLStateBackup {
+    private static final String TAG = "GLStateBackup";
+    static final int VIEWPORT = 1;
+    static final int SCISSOR_TEST = 2;
+    static final int SCISSOR_BOX = 4;
+    static final int CULL_FACE = 8;
+    static final int DEPTH_TEST = 16;
+    static final int CLEAR_COLOR = 32;
+    static final int PROGRAM = 64;
+    static final int TEXTURE_BINDING = 128;
+    static final int BUFFER_BINDINGS = 256;
+    static final int VERTEX_ARRAYS = 512;
+    static final int ALL_STATE = 1023;
+    private final int mTrackedState;
     private boolean mCullFaceEnabled;
     private boolean mScissorTestEnabled;
     private boolean mDepthTestEnabled;
+    private boolean mVertexArrayObjectsEnabled;
+    private boolean mStaticStateEnabled;
+    private boolean mStaticStateValid;
+    private boolean mStaticStateVerificationEnabled;
+    private GLStateBackup mVerificationState;
+    private IntBuffer mVerificationAttributeEnabled;
     private IntBuffer mViewport;
     private IntBuffer mTexture2dId;
     private IntBuffer mTextureUnit;
@@ -17,11 +39,17 @@ class GLStateBackup {
     private IntBuffer mShaderProgram;
     private IntBuffer mArrayBufferBinding;
     private IntBuffer mElementArrayBufferBinding;
+    private IntBuffer mVertexArrayBinding;
     private FloatBuffer mClearColor;
     private ArrayList<VertexAttributeState> mVertexAttributes;
     
     GLStateBackup() {
+        this(ALL_STATE);
+    }
+    
+    GLStateBackup(final int trackedState) {
         super();
+        this.mTrackedState = trackedState;
         this.mViewport = IntBuffer.allocate(4);
         this.mTexture2dId = IntBuffer.allocate(1);
         this.mTextureUnit = IntBuffer.allocate(1);
@@ -29,65 +57,173 @@ class GLStateBackup {
         this.mShaderProgram = IntBuffer.allocate(1);
         this.mArrayBufferBinding = IntBuffer.allocate(1);
         this.mElementArrayBufferBinding = IntBuffer.allocate(1);
+        this.mVertexArrayBinding = IntBuffer.allocate(1);
         this.mClearColor = FloatBuffer.allocate(4);
         this.mVertexAttributes = new ArrayList<VertexAttributeState>();
     }
     
     void addTrackedVertexAttribute(final int attributeId) {
+        for (final VertexAttributeState vas : this.mVertexAttributes) {
+            if (vas.mAttributeId == attributeId) {
+                return;
+            }
+        }
         this.mVertexAttributes.add(new VertexAttributeState(attributeId));
+        this.mStaticStateValid = false;
     }
     
     void clearTrackedVertexAttributes() {
         this.mVertexAttributes.clear();
+        this.mStaticStateValid = false;
+    }
+    
+    void setVertexArrayObjectsEnabled(final boolean enabled) {
+        this.mVertexArrayObjectsEnabled = enabled;
+        this.mStaticStateValid = false;
+    }
+    
+    void setStaticStateEnabled(final boolean enabled) {
+        this.mStaticStateEnabled = enabled;
+        this.mStaticStateValid = false;
+    }
+    
+    void setStaticStateVerificationEnabled(final boolean enabled) {
+        this.mStaticStateVerificationEnabled = enabled;
+    }
+    
+    void invalidateStaticState() {
+        this.mStaticStateValid = false;
     }
     
     void readFromGL() {
-        GLES20.glGetIntegerv(GLES20.GL_VIEWPORT, this.mViewport);
-        this.mCullFaceEnabled = GLES20.glIsEnabled(GLES20.GL_CULL_FACE);
-        this.mScissorTestEnabled = GLES20.glIsEnabled(GLES20.GL_SCISSOR_TEST);
-        this.mDepthTestEnabled = GLES20.glIsEnabled(GLES20.GL_DEPTH_TEST);
-        GLES20.glGetFloatv(GLES20.GL_COLOR_CLEAR_VALUE, this.mClearColor);
-        GLES20.glGetIntegerv(GLES20.GL_CURRENT_PROGRAM, this.mShaderProgram);
-        GLES20.glGetIntegerv(GLES20.GL_SCISSOR_BOX, this.mScissorBox);
-        GLES20.glGetIntegerv(GLES20.GL_ACTIVE_TEXTURE, this.mTextureUnit);
-        GLES20.glGetIntegerv(GLES20.GL_TEXTURE_BINDING_2D, this.mTexture2dId);
-        GLES20.glGetIntegerv(GLES20.GL_ARRAY_BUFFER_BINDING, this.mArrayBufferBinding);
-        GLES20.glGetIntegerv(GLES20.GL_ELEMENT_ARRAY_BUFFER_BINDING, this.mElementArrayBufferBinding);
+        if (this.mStaticStateEnabled && this.mStaticStateValid) {
+            if (this.mStaticStateVerificationEnabled) {
+                this.verifyStaticState();
+            }
+            return;
+        }
+        this.queryGL();
+        this.mStaticStateValid = this.mStaticStateEnabled;
+    }
+    
+    private boolean isTracked(final int state) {
+        return (this.mTrackedState & state) != 0;
+    }
+    
+    private void queryGL() {
+        if (this.isTracked(VIEWPORT)) {
+            GLES20.glGetIntegerv(GLES20.GL_VIEWPORT, this.mViewport);
+        }
+        if (this.isTracked(CULL_FACE)) {
+            this.mCullFaceEnabled = GLES20.glIsEnabled(GLES20.GL_CULL_FACE);
+        }
+        if (this.isTracked(SCISSOR_TEST)) {
+            this.mScissorTestEnabled = GLES20.glIsEnabled(GLES20.GL_SCISSOR_TEST);
+        }
+        if (this.isTracked(DEPTH_TEST)) {
+            this.mDepthTestEnabled = GLES20.glIsEnabled(GLES20.GL_DEPTH_TEST);
+        }
+        if (this.isTracked(CLEAR_COLOR)) {
+            GLES20.glGetFloatv(GLES20.GL_COLOR_CLEAR_VALUE, this.mClearColor);
+        }
+        if (this.isTracked(PROGRAM)) {
+            GLES20.glGetIntegerv(GLES20.GL_CURRENT_PROGRAM, this.mShaderProgram);
+        }
+        if (this.isTracked(SCISSOR_BOX)) {
+            GLES20.glGetIntegerv(GLES20.GL_SCISSOR_BOX, this.mScissorBox);
+        }
+        if (this.isTracked(TEXTURE_BINDING)) {
+            GLES20.glGetIntegerv(GLES20.GL_ACTIVE_TEXTURE, this.mTextureUnit);
+            GLES20.glGetIntegerv(GLES20.GL_TEXTURE_BINDING_2D, this.mTexture2dId);
+        }
+        if (this.isTracked(BUFFER_BINDINGS)) {
+            GLES20.glGetIntegerv(GLES20.GL_ARRAY_BUFFER_BINDING, this.mArrayBufferBinding);
+            GLES20.glGetIntegerv(GLES20.GL_ELEMENT_ARRAY_BUFFER_BINDING, this.mElementArrayBufferBinding);
+        }
+        if (!this.isTracked(VERTEX_ARRAYS)) {
+            return;
+        }
+        if (this.mVertexArrayObjectsEnabled) {
+            GLES20.glGetIntegerv(GLES30.GL_VERTEX_ARRAY_BINDING, this.mVertexArrayBinding);
+            return;
+        }
         for (final VertexAttributeState vas : this.mVertexAttributes) {
             vas.readFromGL();
         }
     }
     
     void writeToGL() {
-        for (final VertexAttributeState vas : this.mVertexAttributes) {
-            vas.writeToGL();
-        }
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.mArrayBufferBinding.array()[0]);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, this.mElementArrayBufferBinding.array()[0]);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, this.mTexture2dId.array()[0]);
-        GLES20.glActiveTexture(this.mTextureUnit.array()[0]);
-        GLES20.glScissor(this.mScissorBox.array()[0], this.mScissorBox.array()[1], this.mScissorBox.array()[2], this.mScissorBox.array()[3]);
-        GLES20.glUseProgram(this.mShaderProgram.array()[0]);
-        GLES20.glClearColor(this.mClearColor.array()[0], this.mClearColor.array()[1], this.mClearColor.array()[2], this.mClearColor.array()[3]);
-        if (this.mCullFaceEnabled) {
-            GLES20.glEnable(GLES20.GL_CULL_FACE);
+        if (this.isTracked(VERTEX_ARRAYS)) {
+            if (this.mVertexArrayObjectsEnabled) {
+                GLES30.glBindVertexArray(this.mVertexArrayBinding.array()[0]);
+            }
+            else {
+                for (final VertexAttributeState vas : this.mVertexAttributes) {
+                    vas.writeToGL();
+                }
+            }
         }
-        else {
-            GLES20.glDisable(GLES20.GL_CULL_FACE);
+        if (this.isTracked(BUFFER_BINDINGS)) {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.mArrayBufferBinding.array()[0]);
+            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, this.mElementArrayBufferBinding.array()[0]);
         }
-        if (this.mScissorTestEnabled) {
-            GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
+        if (this.isTracked(TEXTURE_BINDING)) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, this.mTexture2dId.array()[0]);
+            GLES20.glActiveTexture(this.mTextureUnit.array()[0]);
         }
-        else {
-            GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+        if (this.isTracked(SCISSOR_BOX)) {
+            GLES20.glScissor(this.mScissorBox.array()[0], this.mScissorBox.array()[1], this.mScissorBox.array()[2], this.mScissorBox.array()[3]);
+        }
+        if (this.isTracked(PROGRAM)) {
+            GLES20.glUseProgram(this.mShaderProgram.array()[0]);
+        }
+        if (this.isTracked(CLEAR_COLOR)) {
+            GLES20.glClearColor(this.mClearColor.array()[0], this.mClearColor.array()[1], this.mClearColor.array()[2], this.mClearColor.array()[3]);
+        }
+        if (this.isTracked(CULL_FACE)) {
+            setEnabled(GLES20.GL_CULL_FACE, this.mCullFaceEnabled);
+        }
+        if (this.isTracked(SCISSOR_TEST)) {
+            setEnabled(GLES20.GL_SCISSOR_TEST, this.mScissorTestEnabled);
         }
-        if (this.mDepthTestEnabled) {
-            GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+        if (this.isTracked(DEPTH_TEST)) {
+            setEnabled(GLES20.GL_DEPTH_TEST, this.mDepthTestEnabled);
+        }
+        if (this.isTracked(VIEWPORT)) {
+            GLES20.glViewport(this.mViewport.array()[0], this.mViewport.array()[1], this.mViewport.array()[2], this.mViewport.array()[3]);
+        }
+    }
+    
+    private static void setEnabled(final int capability, final boolean enabled) {
+        if (enabled) {
+            GLES20.glEnable(capability);
         }
         else {
-            GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+            GLES20.glDisable(capability);
+        }
+    }
+    
+    private void verifyStaticState() {
+        if (this.mVerificationState == null) {
+            this.mVerificationState = new GLStateBackup(this.mTrackedState);
+            this.mVerificationAttributeEnabled = IntBuffer.allocate(1);
+        }
+        final GLStateBackup actual = this.mVerificationState;
+        actual.mVertexArrayObjectsEnabled = this.mVertexArrayObjectsEnabled;
+        actual.queryGL();
+        boolean matches = this.mCullFaceEnabled == actual.mCullFaceEnabled && this.mScissorTestEnabled == actual.mScissorTestEnabled && this.mDepthTestEnabled == actual.mDepthTestEnabled && Arrays.equals(this.mViewport.array(), actual.mViewport.array()) && Arrays.equals(this.mTexture2dId.array(), actual.mTexture2dId.array()) && Arrays.equals(this.mTextureUnit.array(), actual.mTextureUnit.array()) && Arrays.equals(this.mScissorBox.array(), actual.mScissorBox.array()) && Arrays.equals(this.mShaderProgram.array(), actual.mShaderProgram.array()) && Arrays.equals(this.mArrayBufferBinding.array(), actual.mArrayBufferBinding.array()) && Arrays.equals(this.mElementArrayBufferBinding.array(), actual.mElementArrayBufferBinding.array()) && Arrays.equals(this.mClearColor.array(), actual.mClearColor.array());
+        if (this.mVertexArrayObjectsEnabled) {
+            matches = matches && Arrays.equals(this.mVertexArrayBinding.array(), actual.mVertexArrayBinding.array());
+        }
+        else if (this.isTracked(VERTEX_ARRAYS)) {
+            for (final VertexAttributeState vas : this.mVertexAttributes) {
+                matches = matches && vas.matchesGL(this.mVerificationAttributeEnabled);
+            }
+        }
+        if (!matches) {
+            Log.w(TAG, "Cached static GL state does not match the driver state, re-reading it with glGet.");
+            this.queryGL();
         }
-        GLES20.glViewport(this.mViewport.array()[0], this.mViewport.array()[1], this.mViewport.array()[2], this.mViewport.array()[3]);
     }
     
     private class VertexAttributeState
@@ -105,6 +241,11 @@ class GLStateBackup {
             GLES20.glGetVertexAttribiv(this.mAttributeId, GLES20.GL_VERTEX_ATTRIB_ARRAY_ENABLED, this.mEnabled);
         }
         
+        boolean matchesGL(final IntBuffer scratch) {
+            GLES20.glGetVertexAttribiv(this.mAttributeId, GLES20.GL_VERTEX_ATTRIB_ARRAY_ENABLED, scratch);
+            return scratch.array()[0] == this.mEnabled.array()[0];
+        }
+        
         void writeToGL() {
             if (this.mEnabled.array()[0] == 0) {
                 GLES20.glDisableVertexAttribArray(this.mAttributeId);
@@ -0,0 +1,121 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+class GpuFrameTimer {
+    private static final String TIMER_QUERY_EXTENSION = "GL_EXT_disjoint_timer_query";
+    private static final int GL_TIME_ELAPSED_EXT = 0x88BF;
+    private static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+    private static final int MAX_PENDING_FRAMES = 4;
+    private final int[] mQueryIds;
+    private final long[] mQueryFrames;
+    private final int[] mQueryResult;
+    private boolean mSupported;
+    private boolean mQueriesGenerated;
+    private int mNextFrame;
+    private int mPendingFrames;
+    private boolean mFrameTimed;
+    private long mFrameCount;
+    private long mLastFrameNanos;
+    private long mLastFrame;
+    private int mSampleCount;
+    
+    GpuFrameTimer() {
+        super();
+        this.mQueryIds = new int[MAX_PENDING_FRAMES];
+        this.mQueryFrames = new long[MAX_PENDING_FRAMES];
+        this.mQueryResult = new int[1];
+        this.mLastFrameNanos = -1L;
+    }
+    
+    void onContextCreated(final GLCapabilities capabilities) {
+        this.mSupported = capabilities.isGles3() && capabilities.hasExtension(TIMER_QUERY_EXTENSION);
+        this.mQueriesGenerated = false;
+        this.reset();
+    }
+    
+    boolean isSupported() {
+        return this.mSupported;
+    }
+    
+    void beginFrame() {
+        ++this.mFrameCount;
+        this.mFrameTimed = false;
+        if (!this.mSupported || this.mPendingFrames == MAX_PENDING_FRAMES) {
+            return;
+        }
+        if (!this.mQueriesGenerated) {
+            GLES30.glGenQueries(MAX_PENDING_FRAMES, this.mQueryIds, 0);
+            this.mQueriesGenerated = true;
+        }
+        GLES30.glBeginQuery(GL_TIME_ELAPSED_EXT, this.mQueryIds[this.mNextFrame]);
+        this.mQueryFrames[this.mNextFrame] = this.mFrameCount;
+        this.mFrameTimed = true;
+    }
+    
+    void endFrame() {
+        if (!this.mFrameTimed) {
+            return;
+        }
+        GLES30.glEndQuery(GL_TIME_ELAPSED_EXT);
+        this.mNextFrame = (this.mNextFrame + 1) % MAX_PENDING_FRAMES;
+        ++this.mPendingFrames;
+        this.mFrameTimed = false;
+    }
+    
+    void poll() {
+        if (this.mPendingFrames == 0) {
+            return;
+        }
+        GLES20.glGetIntegerv(GL_GPU_DISJOINT_EXT, this.mQueryResult, 0);
+        final boolean disjoint = (this.mQueryResult[0] != 0);
+        while (this.mPendingFrames > 0) {
+            final int oldestFrame = this.getOldestFrame();
+            final int queryId = this.mQueryIds[oldestFrame];
+            GLES30.glGetQueryObjectuiv(queryId, GLES30.GL_QUERY_RESULT_AVAILABLE, this.mQueryResult, 0);
+            if (this.mQueryResult[0] == 0) {
+                break;
+            }
+            GLES30.glGetQueryObjectuiv(queryId, GLES30.GL_QUERY_RESULT, this.mQueryResult, 0);
+            --this.mPendingFrames;
+            if (!disjoint) {
+                this.mLastFrameNanos = this.mQueryResult[0] & 0xFFFFFFFFL;
+                this.mLastFrame = this.mQueryFrames[oldestFrame];
+                ++this.mSampleCount;
+            }
+        }
+    }
+    
+    long getLastFrameNanos() {
+        return this.mLastFrameNanos;
+    }
+    
+    long getLastFrameAge() {
+        return (this.mLastFrameNanos < 0L) ? -1L : (this.mFrameCount + 1L - this.mLastFrame);
+    }
+    
+    int getSampleCount() {
+        return this.mSampleCount;
+    }
+    
+    void release() {
+        if (this.mQueriesGenerated) {
+            GLES30.glDeleteQueries(MAX_PENDING_FRAMES, this.mQueryIds, 0);
+            this.mQueriesGenerated = false;
+        }
+        this.reset();
+    }
+    
+    private void reset() {
+        this.mNextFrame = 0;
+        this.mPendingFrames = 0;
+        this.mFrameTimed = false;
+        this.mLastFrameNanos = -1L;
+        this.mLastFrame = 0L;
+    }
+    
+    private int getOldestFrame() {
+        return (this.mNextFrame - this.mPendingFrames + MAX_PENDING_FRAMES) % MAX_PENDING_FRAMES;
+    }
+}
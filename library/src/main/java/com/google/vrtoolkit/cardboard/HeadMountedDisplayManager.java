@@ -18,10 +18,14 @@ public class HeadMountedDisplayManager {
     private static final String TAG = "HMountedDisplayManager";
     private final HeadMountedDisplay mHmd;
     private final Context mContext;
+    private long mDeviceParamsModified;
+    private long mScreenParamsModified;
     
     public HeadMountedDisplayManager(final Context context) {
         super();
         this.mContext = context;
+        this.mDeviceParamsModified = getConfigFileModified("current_device_params");
+        this.mScreenParamsModified = getConfigFileModified("phone_params");
         this.mHmd = new HeadMountedDisplay(this.createScreenParams(), this.createCardboardDeviceParams());
     }
     
@@ -30,18 +34,30 @@ public class HeadMountedDisplayManager {
     }
     
     public void onResume() {
-        final CardboardDeviceParams deviceParams = this.createCardboardDeviceParamsFromExternalStorage();
-        if (deviceParams != null && !deviceParams.equals(this.mHmd.getCardboardDeviceParams())) {
-            this.mHmd.setCardboardDeviceParams(deviceParams);
-            Log.i(TAG, "Successfully read updated device params from external storage");
+        final long deviceParamsModified = getConfigFileModified("current_device_params");
+        if (deviceParamsModified != this.mDeviceParamsModified) {
+            this.mDeviceParamsModified = deviceParamsModified;
+            final CardboardDeviceParams deviceParams = this.createCardboardDeviceParamsFromExternalStorage();
+            if (deviceParams != null && !deviceParams.equals(this.mHmd.getCardboardDeviceParams())) {
+                this.mHmd.setCardboardDeviceParams(deviceParams);
+                Log.i(TAG, "Successfully read updated device params from external storage");
+            }
         }
-        final ScreenParams screenParams = this.createScreenParamsFromExternalStorage(this.getDisplay());
-        if (screenParams != null && !screenParams.equals(this.mHmd.getScreenParams())) {
-            this.mHmd.setScreenParams(screenParams);
-            Log.i(TAG, "Successfully read updated screen params from external storage");
+        final long screenParamsModified = getConfigFileModified("phone_params");
+        if (screenParamsModified != this.mScreenParamsModified) {
+            this.mScreenParamsModified = screenParamsModified;
+            final ScreenParams screenParams = this.createScreenParamsFromExternalStorage(this.getDisplay());
+            if (screenParams != null && !screenParams.equals(this.mHmd.getScreenParams())) {
+                this.mHmd.setScreenParams(screenParams);
+                Log.i(TAG, "Successfully read updated screen params from external storage");
+            }
         }
     }
     
+    static long getConfigFileModified(final String filename) {
+        return ConfigUtils.getConfigFile(filename).lastModified();
+    }
+    
     public void onPause() {
     }
     
@@ -83,6 +99,7 @@ public class HeadMountedDisplayManager {
         }
         else {
             Log.i(TAG, "Successfully wrote Cardboard parameters to external storage.");
+            this.mDeviceParamsModified = getConfigFileModified("current_device_params");
         }
     }
     
@@ -0,0 +1,51 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+class MultisampledRenderToTexture {
+    private static final String TAG = "MultisampledRenderToTexture";
+    private static final String EXTENSION = "GL_EXT_multisampled_render_to_texture";
+    private static final String LIBRARY_NAME = "cardboard_msrtt";
+    private static final int GL_MAX_SAMPLES_EXT = 0x8D57;
+    private static boolean sLoadAttempted;
+    private static boolean sAvailable;
+    
+    static synchronized boolean isAvailable(final GLCapabilities capabilities) {
+        if (!capabilities.hasExtension(EXTENSION)) {
+            return false;
+        }
+        if (!sLoadAttempted) {
+            sLoadAttempted = true;
+            try {
+                System.loadLibrary(LIBRARY_NAME);
+                sAvailable = nativeInit();
+            }
+            catch (UnsatisfiedLinkError e) {
+                Log.w(TAG, new StringBuilder().append(EXTENSION).append(" is supported but lib").append(LIBRARY_NAME).append(".so is missing, falling back to a blit resolve").toString());
+                sAvailable = false;
+            }
+        }
+        return sAvailable;
+    }
+    
+    static int getMaxSamples() {
+        final int[] maxSamples = { 0 };
+        GLES20.glGetIntegerv(GL_MAX_SAMPLES_EXT, maxSamples, 0);
+        return maxSamples[0];
+    }
+    
+    static void framebufferTexture2D(final int target, final int attachment, final int textarget, final int texture, final int level, final int samples) {
+        nativeFramebufferTexture2DMultisample(target, attachment, textarget, texture, level, samples);
+    }
+    
+    static void renderbufferStorage(final int target, final int samples, final int internalFormat, final int width, final int height) {
+        nativeRenderbufferStorageMultisample(target, samples, internalFormat, width, height);
+    }
+    
+    private static native boolean nativeInit();
+    
+    private static native void nativeFramebufferTexture2DMultisample(int p0, int p1, int p2, int p3, int p4, int p5);
+    
+    private static native void nativeRenderbufferStorageMultisample(int p0, int p1, int p2, int p3, int p4);
+}
@@ -0,0 +1,196 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+class ProgramCache {
+    private static final String TAG = "ProgramCache";
+    private static final int FILE_VERSION = 1;
+    private static final int MAX_BINARY_LENGTH = 1048576;
+    private final File mDirectory;
+    private boolean mInitialized;
+    private boolean mSupported;
+    private String mDriverKey;
+    
+    ProgramCache(final File directory) {
+        super();
+        this.mDirectory = directory;
+    }
+    
+    int loadProgram(final String vertexSource, final String fragmentSource) {
+        if (!this.isSupported()) {
+            return 0;
+        }
+        final File file = this.getFile(vertexSource, fragmentSource);
+        if (file == null || !file.exists()) {
+            return 0;
+        }
+        int format;
+        byte[] binary;
+        try {
+            DataInputStream stream = null;
+            try {
+                stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                if (stream.readInt() != FILE_VERSION) {
+                    throw new IOException("Unknown program cache version");
+                }
+                format = stream.readInt();
+                final int length = stream.readInt();
+                if (length <= 0 || length > MAX_BINARY_LENGTH) {
+                    throw new IOException("Invalid program binary length");
+                }
+                binary = new byte[length];
+                stream.readFully(binary);
+            }
+            finally {
+                if (stream != null) {
+                    try {
+                        stream.close();
+                    }
+                    catch (IOException ex) {}
+                }
+            }
+        }
+        catch (IOException e) {
+            final String value = String.valueOf(String.valueOf(e));
+            Log.w(TAG, new StringBuilder(36 + value.length()).append("Could not read cached program from ").append(value).toString());
+            file.delete();
+            return 0;
+        }
+        int program = GLES20.glCreateProgram();
+        if (program == 0) {
+            return 0;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(binary.length).order(ByteOrder.nativeOrder());
+        buffer.put(binary).position(0);
+        GLES30.glProgramBinary(program, format, buffer, binary.length);
+        while (GLES20.glGetError() != GLES20.GL_NO_ERROR) {}
+        final int[] linkStatus = { 0 };
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != 1) {
+            Log.i(TAG, "Cached program binary was rejected by the driver");
+            GLES20.glDeleteProgram(program);
+            program = 0;
+            file.delete();
+        }
+        return program;
+    }
+    
+    void storeProgram(final int program, final String vertexSource, final String fragmentSource) {
+        if (!this.isSupported()) {
+            return;
+        }
+        final File file = this.getFile(vertexSource, fragmentSource);
+        if (file == null) {
+            return;
+        }
+        final int[] length = { 0 };
+        GLES20.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        if (length[0] <= 0 || length[0] > MAX_BINARY_LENGTH) {
+            return;
+        }
+        final int[] format = { 0 };
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(length[0]).order(ByteOrder.nativeOrder());
+        GLES30.glGetProgramBinary(program, length[0], length, 0, format, 0, buffer);
+        if (GLES20.glGetError() != GLES20.GL_NO_ERROR || length[0] <= 0) {
+            return;
+        }
+        final byte[] binary = new byte[length[0]];
+        buffer.position(0);
+        buffer.get(binary);
+        if (!this.mDirectory.isDirectory() && !this.mDirectory.mkdirs()) {
+            return;
+        }
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream stream = null;
+            try {
+                stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+                stream.writeInt(FILE_VERSION);
+                stream.writeInt(format[0]);
+                stream.writeInt(binary.length);
+                stream.write(binary);
+            }
+            finally {
+                if (stream != null) {
+                    try {
+                        stream.close();
+                    }
+                    catch (IOException ex) {}
+                }
+            }
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+            }
+        }
+        catch (FileNotFoundException e) {
+            final String value = String.valueOf(String.valueOf(e));
+            Log.w(TAG, new StringBuilder(28 + value.length()).append("Could not write program to ").append(value).toString());
+        }
+        catch (IOException e2) {
+            final String value2 = String.valueOf(String.valueOf(e2));
+            Log.w(TAG, new StringBuilder(28 + value2.length()).append("Could not write program to ").append(value2).toString());
+            tempFile.delete();
+        }
+    }
+    
+    private boolean isSupported() {
+        if (this.mInitialized) {
+            return this.mSupported;
+        }
+        this.mInitialized = true;
+        if (this.mDirectory == null || !GLCapabilities.query().isGles3()) {
+            return false;
+        }
+        final int[] formatCount = { 0 };
+        GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, formatCount, 0);
+        if (formatCount[0] <= 0) {
+            return false;
+        }
+        this.mDriverKey = new StringBuilder().append(GLES20.glGetString(GLES20.GL_VENDOR)).append('\n')
+                .append(GLES20.glGetString(GLES20.GL_RENDERER)).append('\n')
+                .append(GLES20.glGetString(GLES20.GL_VERSION)).append('\n')
+                .append(Build.FINGERPRINT).append('\n').toString();
+        this.mSupported = true;
+        return true;
+    }
+    
+    private File getFile(final String vertexSource, final String fragmentSource) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(this.mDriverKey.getBytes("UTF-8"));
+            digest.update(vertexSource.getBytes("UTF-8"));
+            digest.update((byte)0);
+            digest.update(fragmentSource.getBytes("UTF-8"));
+            final byte[] hash = digest.digest();
+            final StringBuilder name = new StringBuilder(hash.length * 2 + 4);
+            for (final byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return new File(this.mDirectory, name.append(".bin").toString());
+        }
+        catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        catch (UnsupportedEncodingException e2) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+class RenderTargetPool {
+    private static final int SIZE_BUCKET_PX = 64;
+    private static final int RELEASE_DELAY_FRAMES = 3;
+    private final GLResourceRegistry mResourceRegistry;
+    private final ArrayList<RenderTarget> mReleasedTargets;
+    private long mFrameCount;
+    private boolean mImplicitResolveEnabled;
+    
+    RenderTargetPool(final GLResourceRegistry resourceRegistry) {
+        super();
+        this.mResourceRegistry = resourceRegistry;
+        this.mReleasedTargets = new ArrayList<RenderTarget>();
+    }
+    
+    void setImplicitResolveEnabled(final boolean implicitResolveEnabled) {
+        this.mImplicitResolveEnabled = implicitResolveEnabled;
+    }
+    
+    RenderTarget acquire(final int width, final int height, final int textureFormat, final int textureType, final int depthFormat, final int samples, final int maxSize) {
+        final int bucketWidth = getBucketSize(width, maxSize);
+        final int bucketHeight = getBucketSize(height, maxSize);
+        final Iterator<RenderTarget> iterator = this.mReleasedTargets.iterator();
+        while (iterator.hasNext()) {
+            final RenderTarget target = iterator.next();
+            if (target.matches(bucketWidth, bucketHeight, textureFormat, textureType, depthFormat, samples)) {
+                iterator.remove();
+                target.setUsedSize(width, height);
+                return target;
+            }
+        }
+        final RenderTarget target = new RenderTarget(this.mResourceRegistry, bucketWidth, bucketHeight, textureFormat, textureType, depthFormat, samples, this.mImplicitResolveEnabled);
+        target.setUsedSize(width, height);
+        return target;
+    }
+    
+    boolean canReuse(final RenderTarget target, final int width, final int height, final int textureFormat, final int textureType, final int depthFormat, final int samples, final int maxSize) {
+        return target.matches(getBucketSize(width, maxSize), getBucketSize(height, maxSize), textureFormat, textureType, depthFormat, samples);
+    }
+    
+    void release(final RenderTarget target) {
+        target.mReleaseFrame = this.mFrameCount;
+        this.mReleasedTargets.add(target);
+    }
+    
+    void endFrame() {
+        ++this.mFrameCount;
+        final Iterator<RenderTarget> iterator = this.mReleasedTargets.iterator();
+        while (iterator.hasNext()) {
+            final RenderTarget target = iterator.next();
+            if (this.mFrameCount - target.mReleaseFrame > RELEASE_DELAY_FRAMES) {
+                target.delete();
+                iterator.remove();
+            }
+        }
+    }
+    
+    void clear() {
+        for (final RenderTarget target : this.mReleasedTargets) {
+            target.delete();
+        }
+        this.mReleasedTargets.clear();
+    }
+    
+    void abandon() {
+        this.mReleasedTargets.clear();
+    }
+    
+    private static int getSizedColorFormat(final int textureFormat, final int textureType) {
+        switch (textureType) {
+            case GLES20.GL_UNSIGNED_SHORT_5_6_5: {
+                return GLES20.GL_RGB565;
+            }
+            case GLES20.GL_UNSIGNED_SHORT_4_4_4_4: {
+                return GLES20.GL_RGBA4;
+            }
+            case GLES20.GL_UNSIGNED_SHORT_5_5_5_1: {
+                return GLES20.GL_RGB5_A1;
+            }
+            default: {
+                return (textureFormat == GLES20.GL_RGBA) ? GLES30.GL_RGBA8 : GLES30.GL_RGB8;
+            }
+        }
+    }
+    
+    private static int getBucketSize(final int size, final int maxSize) {
+        final int bucket = (size + SIZE_BUCKET_PX - 1) / SIZE_BUCKET_PX * SIZE_BUCKET_PX;
+        return Math.max(1, Math.min(bucket, maxSize));
+    }
+    
+    static class RenderTarget {
+        private final GLResourceRegistry mResourceRegistry;
+        final int width;
+        final int height;
+        final int textureFormat;
+        final int textureType;
+        final int depthFormat;
+        final int samples;
+        int textureId;
+        int renderbufferId;
+        int framebufferId;
+        int colorRenderbufferId;
+        int resolveFramebufferId;
+        int usedWidth;
+        int usedHeight;
+        long mReleaseFrame;
+        
+        RenderTarget(final GLResourceRegistry resourceRegistry, final int width, final int height, final int textureFormat, final int textureType,
+                     final int depthFormat, final int samples, final boolean implicitResolve) {
+            super();
+            this.mResourceRegistry = resourceRegistry;
+            this.width = width;
+            this.height = height;
+            this.textureFormat = textureFormat;
+            this.textureType = textureType;
+            this.depthFormat = depthFormat;
+            this.samples = samples;
+            final int[] textureIds = { 0 };
+            GLES20.glGenTextures(1, textureIds, 0);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureIds[0]);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, textureFormat, width, height, 0, textureFormat, textureType, (Buffer)null);
+            this.textureId = textureIds[0];
+            resourceRegistry.register(GLResourceRegistry.TEXTURE, this.textureId, (long)width * height * GLResourceRegistry.getBytesPerPixel(textureFormat, textureType));
+            final int[] framebufferIds = { 0, 0 };
+            if (samples > 0 && implicitResolve) {
+                GLES20.glGenFramebuffers(1, framebufferIds, 0);
+                this.framebufferId = framebufferIds[0];
+                resourceRegistry.register(GLResourceRegistry.FRAMEBUFFER, this.framebufferId, 0L);
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.framebufferId);
+                MultisampledRenderToTexture.framebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, this.textureId, 0, samples);
+            }
+            else if (samples > 0) {
+                this.colorRenderbufferId = createRenderbuffer(resourceRegistry, getSizedColorFormat(textureFormat, textureType), samples, false, width, height);
+                GLES20.glGenFramebuffers(2, framebufferIds, 0);
+                this.framebufferId = framebufferIds[0];
+                this.resolveFramebufferId = framebufferIds[1];
+                resourceRegistry.register(GLResourceRegistry.FRAMEBUFFER, this.framebufferId, 0L);
+                resourceRegistry.register(GLResourceRegistry.FRAMEBUFFER, this.resolveFramebufferId, 0L);
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.resolveFramebufferId);
+                GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, this.textureId, 0);
+                this.checkFramebufferStatus();
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.framebufferId);
+                GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_RENDERBUFFER, this.colorRenderbufferId);
+            }
+            else {
+                GLES20.glGenFramebuffers(1, framebufferIds, 0);
+                this.framebufferId = framebufferIds[0];
+                resourceRegistry.register(GLResourceRegistry.FRAMEBUFFER, this.framebufferId, 0L);
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, this.framebufferId);
+                GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_TEXTURE_2D, this.textureId, 0);
+            }
+            if (depthFormat != 0) {
+                this.renderbufferId = createRenderbuffer(resourceRegistry, depthFormat, samples, implicitResolve, width, height);
+                GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_RENDERBUFFER, this.renderbufferId);
+                if (depthFormat == GLES30.GL_DEPTH24_STENCIL8) {
+                    GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_STENCIL_ATTACHMENT, GLES20.GL_RENDERBUFFER, this.renderbufferId);
+                }
+            }
+            this.checkFramebufferStatus();
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        }
+        
+        private static int createRenderbuffer(final GLResourceRegistry resourceRegistry, final int internalFormat, final int samples, final boolean implicitResolve,
+                                              final int width, final int height) {
+            final int[] renderbufferIds = { 0 };
+            GLES20.glGenRenderbuffers(1, renderbufferIds, 0);
+            GLES20.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, renderbufferIds[0]);
+            if (samples > 0 && implicitResolve) {
+                MultisampledRenderToTexture.renderbufferStorage(GLES20.GL_RENDERBUFFER, samples, internalFormat, width, height);
+            }
+            else if (samples > 0) {
+                GLES30.glRenderbufferStorageMultisample(GLES20.GL_RENDERBUFFER, samples, internalFormat, width, height);
+            }
+            else {
+                GLES20.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, internalFormat, width, height);
+            }
+            resourceRegistry.register(GLResourceRegistry.RENDERBUFFER, renderbufferIds[0],
+                    (long)width * height * GLResourceRegistry.getBytesPerPixel(internalFormat, 0) * Math.max(1, samples));
+            return renderbufferIds[0];
+        }
+        
+        private void checkFramebufferStatus() {
+            final int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+            if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+                this.delete();
+                final String s = "Framebuffer is not complete: ";
+                final String value = String.valueOf(Integer.toHexString(status));
+                throw new RuntimeException((value.length() != 0) ? s.concat(value) : new String(s));
+            }
+        }
+        
+        boolean matches(final int width, final int height, final int textureFormat, final int textureType, final int depthFormat, final int samples) {
+            return this.width == width && this.height == height && this.textureFormat == textureFormat && this.textureType == textureType
+                    && this.depthFormat == depthFormat && this.samples == samples;
+        }
+        
+        boolean isMultisampled() {
+            return this.resolveFramebufferId != 0;
+        }
+        
+        void setUsedSize(final int usedWidth, final int usedHeight) {
+            this.usedWidth = Math.min(usedWidth, this.width);
+            this.usedHeight = Math.min(usedHeight, this.height);
+        }
+        
+        void delete() {
+            if (this.framebufferId != 0) {
+                this.mResourceRegistry.delete(GLResourceRegistry.FRAMEBUFFER, this.framebufferId);
+                this.framebufferId = 0;
+            }
+            if (this.resolveFramebufferId != 0) {
+                this.mResourceRegistry.delete(GLResourceRegistry.FRAMEBUFFER, this.resolveFramebufferId);
+                this.resolveFramebufferId = 0;
+            }
+            if (this.colorRenderbufferId != 0) {
+                this.mResourceRegistry.delete(GLResourceRegistry.RENDERBUFFER, this.colorRenderbufferId);
+                this.colorRenderbufferId = 0;
+            }
+            if (this.renderbufferId != 0) {
+                this.mResourceRegistry.delete(GLResourceRegistry.RENDERBUFFER, this.renderbufferId);
+                this.renderbufferId = 0;
+            }
+            if (this.textureId != 0) {
+                this.mResourceRegistry.delete(GLResourceRegistry.TEXTURE, this.textureId);
+                this.textureId = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.google.vrtoolkit.cardboard;
+
+class RendererConfig {
+    static final int CARDBOARD_DEVICE_PARAMS = 0x1;
+    static final int SCREEN_PARAMS = 0x2;
+    static final int DISTORTION_CORRECTION = 0x4;
+    static final int DISTORTION_CORRECTION_SCALE = 0x8;
+    static final int DYNAMIC_RESOLUTION_SCALE = 0x10;
+    static final int DYNAMIC_RESOLUTION_SCALE_RANGE = 0x20;
+    static final int RESTORE_GL_STATE = 0x40;
+    static final int CHROMATIC_ABERRATION_CORRECTION = 0x80;
+    static final int VIGNETTE = 0x100;
+    static final int COMPACT_VERTEX_FORMAT = 0x200;
+    static final int MULTISAMPLE_COUNT = 0x400;
+    static final int DEPTH_STENCIL_FORMAT = 0x800;
+    static final int FOVEATED_RENDERING = 0x1000;
+    static final int FOVEATION_PARAMETERS = 0x2000;
+    static final int TEXTURE_FORMAT = 0x4000;
+    private volatile int mVersion;
+    private int mAppliedVersion;
+    private int mDirtyFlags;
+    CardboardDeviceParams cardboardDeviceParams;
+    ScreenParams screenParams;
+    boolean distortionCorrectionEnabled;
+    float distortionCorrectionScale;
+    boolean dynamicResolutionScaleEnabled;
+    long targetFrameTimeNanos;
+    float minDynamicResolutionScale;
+    float maxDynamicResolutionScale;
+    boolean restoreGLStateEnabled;
+    boolean chromaticAberrationCorrectionEnabled;
+    boolean vignetteEnabled;
+    boolean compactVertexFormatEnabled;
+    int multisampleCount;
+    int depthStencilFormat;
+    boolean foveatedRenderingEnabled;
+    float fovealFraction;
+    float peripheralResolutionScale;
+    int textureFormat;
+    int textureType;
+    
+    RendererConfig() {
+        super();
+    }
+    
+    synchronized void setCardboardDeviceParams(final CardboardDeviceParams params) {
+        this.cardboardDeviceParams = params;
+        this.markDirty(CARDBOARD_DEVICE_PARAMS);
+    }
+    
+    synchronized void setScreenParams(final ScreenParams params) {
+        this.screenParams = params;
+        this.markDirty(SCREEN_PARAMS);
+    }
+    
+    synchronized void setDistortionCorrectionEnabled(final boolean enabled) {
+        this.distortionCorrectionEnabled = enabled;
+        this.markDirty(DISTORTION_CORRECTION);
+    }
+    
+    synchronized void setDistortionCorrectionScale(final float scale) {
+        this.distortionCorrectionScale = scale;
+        this.markDirty(DISTORTION_CORRECTION_SCALE);
+    }
+    
+    synchronized void setDynamicResolutionScaleEnabled(final boolean enabled, final long targetFrameTimeNanos) {
+        this.dynamicResolutionScaleEnabled = enabled;
+        this.targetFrameTimeNanos = targetFrameTimeNanos;
+        this.markDirty(DYNAMIC_RESOLUTION_SCALE);
+    }
+    
+    synchronized void setDynamicResolutionScaleRange(final float minScale, final float maxScale) {
+        this.minDynamicResolutionScale = minScale;
+        this.maxDynamicResolutionScale = maxScale;
+        this.markDirty(DYNAMIC_RESOLUTION_SCALE_RANGE);
+    }
+    
+    synchronized void setRestoreGLStateEnabled(final boolean enabled) {
+        this.restoreGLStateEnabled = enabled;
+        this.markDirty(RESTORE_GL_STATE);
+    }
+    
+    synchronized void setChromaticAberrationCorrectionEnabled(final boolean enabled) {
+        this.chromaticAberrationCorrectionEnabled = enabled;
+        this.markDirty(CHROMATIC_ABERRATION_CORRECTION);
+    }
+    
+    synchronized void setVignetteEnabled(final boolean enabled) {
+        this.vignetteEnabled = enabled;
+        this.markDirty(VIGNETTE);
+    }
+    
+    synchronized void setCompactVertexFormatEnabled(final boolean enabled) {
+        this.compactVertexFormatEnabled = enabled;
+        this.markDirty(COMPACT_VERTEX_FORMAT);
+    }
+    
+    synchronized void setMultisampleCount(final int samples) {
+        this.multisampleCount = samples;
+        this.markDirty(MULTISAMPLE_COUNT);
+    }
+    
+    synchronized void setDepthStencilFormat(final int depthStencilFormat) {
+        this.depthStencilFormat = depthStencilFormat;
+        this.markDirty(DEPTH_STENCIL_FORMAT);
+    }
+    
+    synchronized void setFoveatedRenderingEnabled(final boolean enabled) {
+        this.foveatedRenderingEnabled = enabled;
+        this.markDirty(FOVEATED_RENDERING);
+    }
+    
+    synchronized void setFoveationParameters(final float fovealFraction, final float peripheralResolutionScale) {
+        this.fovealFraction = fovealFraction;
+        this.peripheralResolutionScale = peripheralResolutionScale;
+        this.markDirty(FOVEATION_PARAMETERS);
+    }
+    
+    synchronized void setTextureFormat(final int textureFormat, final int textureType) {
+        this.textureFormat = textureFormat;
+        this.textureType = textureType;
+        this.markDirty(TEXTURE_FORMAT);
+    }
+    
+    private void markDirty(final int flag) {
+        this.mDirtyFlags |= flag;
+        ++this.mVersion;
+    }
+    
+    boolean hasPendingChanges() {
+        return this.mVersion != this.mAppliedVersion;
+    }
+    
+    synchronized int copyChangesTo(final RendererConfig target) {
+        final int dirtyFlags = this.mDirtyFlags;
+        target.cardboardDeviceParams = this.cardboardDeviceParams;
+        target.screenParams = this.screenParams;
+        target.distortionCorrectionEnabled = this.distortionCorrectionEnabled;
+        target.distortionCorrectionScale = this.distortionCorrectionScale;
+        target.dynamicResolutionScaleEnabled = this.dynamicResolutionScaleEnabled;
+        target.targetFrameTimeNanos = this.targetFrameTimeNanos;
+        target.minDynamicResolutionScale = this.minDynamicResolutionScale;
+        target.maxDynamicResolutionScale = this.maxDynamicResolutionScale;
+        target.restoreGLStateEnabled = this.restoreGLStateEnabled;
+        target.chromaticAberrationCorrectionEnabled = this.chromaticAberrationCorrectionEnabled;
+        target.vignetteEnabled = this.vignetteEnabled;
+        target.compactVertexFormatEnabled = this.compactVertexFormatEnabled;
+        target.multisampleCount = this.multisampleCount;
+        target.depthStencilFormat = this.depthStencilFormat;
+        target.foveatedRenderingEnabled = this.foveatedRenderingEnabled;
+        target.fovealFraction = this.fovealFraction;
+        target.peripheralResolutionScale = this.peripheralResolutionScale;
+        target.textureFormat = this.textureFormat;
+        target.textureType = this.textureType;
+        this.mDirtyFlags = 0;
+        this.mAppliedVersion = this.mVersion;
+        return dirtyFlags;
+    }
+}
@@ -0,0 +1,149 @@
+package com.google.vrtoolkit.cardboard;
+
+import com.google.vrtoolkit.cardboard.sensors.Clock;
+
+class ResolutionScaleController {
+    private static final int TIMING_GPU = 0;
+    private static final int TIMING_FRAME_INTERVAL = 1;
+    private static final float SCALE_STEP = 0.05f;
+    private static final float SMOOTHING_FACTOR = 0.25f;
+    private static final float DECREASE_THRESHOLD = 0.9f;
+    private static final float INCREASE_THRESHOLD = 0.8f;
+    private static final float MISSED_FRAME_THRESHOLD = 1.5f;
+    private static final int DECREASE_FRAME_COUNT = 3;
+    private static final int INCREASE_FRAME_COUNT = 30;
+    private final Clock mClock;
+    private int mTimingMode;
+    private long mLastFrameEndNanos;
+    private float mFrameTimeNanos;
+    private boolean mNewSample;
+    private long mTargetFrameTimeNanos;
+    private float mMinScale;
+    private float mMaxScale;
+    private float mScale;
+    private int mOverBudgetFrames;
+    private int mUnderBudgetFrames;
+    
+    ResolutionScaleController(final float scale, final float minScale, final float maxScale, final long targetFrameTimeNanos, final Clock clock) {
+        super();
+        this.mClock = clock;
+        this.mTimingMode = TIMING_FRAME_INTERVAL;
+        this.mTargetFrameTimeNanos = targetFrameTimeNanos;
+        this.setScaleRange(minScale, maxScale);
+        this.mScale = clamp(scale, this.mMinScale, this.mMaxScale);
+    }
+    
+    void setScaleRange(final float minScale, final float maxScale) {
+        this.mMinScale = minScale;
+        this.mMaxScale = maxScale;
+        this.mScale = clamp(this.mScale, minScale, maxScale);
+    }
+    
+    void setTargetFrameTimeNanos(final long targetFrameTimeNanos) {
+        this.mTargetFrameTimeNanos = targetFrameTimeNanos;
+        this.mOverBudgetFrames = 0;
+        this.mUnderBudgetFrames = 0;
+    }
+    
+    float getScale() {
+        return this.mScale;
+    }
+    
+    void setGpuTimingAvailable(final boolean available) {
+        final int mode = available ? TIMING_GPU : TIMING_FRAME_INTERVAL;
+        if (mode == this.mTimingMode) {
+            return;
+        }
+        this.mTimingMode = mode;
+        this.mFrameTimeNanos = 0.0f;
+        this.mNewSample = false;
+        this.mLastFrameEndNanos = 0L;
+        this.mOverBudgetFrames = 0;
+        this.mUnderBudgetFrames = 0;
+    }
+    
+    void addGpuFrameTime(final long frameTimeNanos) {
+        if (this.mTimingMode == TIMING_GPU && frameTimeNanos >= 0L) {
+            this.addSample(frameTimeNanos);
+        }
+    }
+    
+    void endFrame() {
+        if (this.mTimingMode != TIMING_FRAME_INTERVAL) {
+            return;
+        }
+        final long now = this.mClock.nanoTime();
+        if (this.mLastFrameEndNanos != 0L) {
+            this.addSample(now - this.mLastFrameEndNanos);
+        }
+        this.mLastFrameEndNanos = now;
+    }
+    
+    float update() {
+        if (this.mNewSample) {
+            this.mNewSample = false;
+            this.adjustScale();
+        }
+        return this.mScale;
+    }
+    
+    void reset() {
+        this.mLastFrameEndNanos = 0L;
+    }
+    
+    private void addSample(final long frameTimeNanos) {
+        if (this.mFrameTimeNanos == 0.0f) {
+            this.mFrameTimeNanos = frameTimeNanos;
+        }
+        else {
+            this.mFrameTimeNanos += SMOOTHING_FACTOR * (frameTimeNanos - this.mFrameTimeNanos);
+        }
+        this.mNewSample = true;
+    }
+    
+    private void adjustScale() {
+        boolean overBudget;
+        boolean underBudget;
+        if (this.mTimingMode == TIMING_FRAME_INTERVAL) {
+            overBudget = (this.mFrameTimeNanos > MISSED_FRAME_THRESHOLD * this.mTargetFrameTimeNanos);
+            underBudget = !overBudget;
+        }
+        else {
+            final float nextScale = Math.min(this.mScale + SCALE_STEP, this.mMaxScale);
+            final float nextScaleRatio = nextScale / this.mScale;
+            overBudget = (this.mFrameTimeNanos > DECREASE_THRESHOLD * this.mTargetFrameTimeNanos);
+            underBudget = (this.mFrameTimeNanos * nextScaleRatio * nextScaleRatio < INCREASE_THRESHOLD * this.mTargetFrameTimeNanos);
+        }
+        if (overBudget && this.mScale > this.mMinScale) {
+            this.mUnderBudgetFrames = 0;
+            if (++this.mOverBudgetFrames >= DECREASE_FRAME_COUNT) {
+                this.setScale(this.mScale - SCALE_STEP);
+            }
+        }
+        else if (underBudget && this.mScale < this.mMaxScale) {
+            this.mOverBudgetFrames = 0;
+            if (++this.mUnderBudgetFrames >= INCREASE_FRAME_COUNT) {
+                this.setScale(this.mScale + SCALE_STEP);
+            }
+        }
+        else {
+            this.mOverBudgetFrames = 0;
+            this.mUnderBudgetFrames = 0;
+        }
+    }
+    
+    private void setScale(final float scale) {
+        final float newScale = clamp(scale, this.mMinScale, this.mMaxScale);
+        if (this.mTimingMode != TIMING_FRAME_INTERVAL) {
+            final float ratio = newScale / this.mScale;
+            this.mFrameTimeNanos *= ratio * ratio;
+        }
+        this.mScale = newScale;
+        this.mOverBudgetFrames = 0;
+        this.mUnderBudgetFrames = 0;
+    }
+    
+    private static float clamp(final float val, final float min, final float max) {
+        return Math.max(min, Math.min(max, val));
+    }
+}
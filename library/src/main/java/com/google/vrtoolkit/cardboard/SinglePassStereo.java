@@ -0,0 +1,33 @@
+package com.google.vrtoolkit.cardboard;
+
+public class SinglePassStereo {
+    public static final int EYE_COUNT = 2;
+    public static final int CLIP_TRANSFORM_COMPONENTS = 4;
+
+    public static void getPassViewport(final Viewport leftViewport, final Viewport rightViewport, final Viewport passViewport) {
+        final int x = Math.min(leftViewport.x, rightViewport.x);
+        final int y = Math.min(leftViewport.y, rightViewport.y);
+        final int right = Math.max(leftViewport.x + leftViewport.width, rightViewport.x + rightViewport.width);
+        final int top = Math.max(leftViewport.y + leftViewport.height, rightViewport.y + rightViewport.height);
+        passViewport.setViewport(x, y, right - x, top - y);
+    }
+
+    public static void getEyeClipTransforms(final Viewport leftViewport, final Viewport rightViewport, final float[] transforms, final int offset) {
+        if (offset + EYE_COUNT * CLIP_TRANSFORM_COMPONENTS > transforms.length) {
+            throw new IllegalArgumentException("Not enough space to write the result");
+        }
+        final int x = Math.min(leftViewport.x, rightViewport.x);
+        final int y = Math.min(leftViewport.y, rightViewport.y);
+        final int width = Math.max(leftViewport.x + leftViewport.width, rightViewport.x + rightViewport.width) - x;
+        final int height = Math.max(leftViewport.y + leftViewport.height, rightViewport.y + rightViewport.height) - y;
+        getEyeClipTransform(leftViewport, x, y, width, height, transforms, offset);
+        getEyeClipTransform(rightViewport, x, y, width, height, transforms, offset + CLIP_TRANSFORM_COMPONENTS);
+    }
+
+    private static void getEyeClipTransform(final Viewport eyeViewport, final int passX, final int passY, final int passWidth, final int passHeight, final float[] transform, final int offset) {
+        transform[offset] = (float)eyeViewport.width / passWidth;
+        transform[offset + 1] = (float)eyeViewport.height / passHeight;
+        transform[offset + 2] = (2.0f * (eyeViewport.x - passX) + eyeViewport.width) / passWidth - 1.0f;
+        transform[offset + 3] = (2.0f * (eyeViewport.y - passY) + eyeViewport.height) / passHeight - 1.0f;
+    }
+}
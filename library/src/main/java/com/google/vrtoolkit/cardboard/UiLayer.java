@@ -4,6 +4,7 @@ import android.content.Context;
 import android.graphics.Color;
 import android.graphics.Rect;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 import android.opengl.Matrix;
 import android.util.Log;
 import android.view.MotionEvent;
@@ -21,6 +22,8 @@ class UiLayer {
     private static final float CENTER_LINE_THICKNESS_DP = 4.0f;
     private static final int BUTTON_WIDTH_DP = 28;
     private static final float TOUCH_SLOP_FACTOR = 1.5f;
+    private static final int RESTORED_GL_STATE = GLStateBackup.VIEWPORT | GLStateBackup.CULL_FACE | GLStateBackup.DEPTH_TEST
+            | GLStateBackup.PROGRAM | GLStateBackup.BUFFER_BINDINGS | GLStateBackup.VERTEX_ARRAYS;
     private final int mTouchWidthPx;
     private volatile Rect mTouchRect;
     private boolean mDownWithinBounds;
@@ -34,21 +37,24 @@ class UiLayer {
     private boolean mSettingsButtonEnabled;
     private boolean mAlignmentMarkerEnabled;
     private boolean initialized;
+    private boolean mVertexArrayObjectsEnabled;
+    private final ProgramCache mProgramCache;
     
-    UiLayer(final Context context) {
+    UiLayer(final Context context, final ProgramCache programCache, final GLResourceRegistry resourceRegistry) {
         super();
         this.mTouchRect = new Rect();
         this.mShouldUpdateViewport = true;
         this.mSettingsButtonEnabled = true;
         this.mAlignmentMarkerEnabled = true;
         this.mContext = context;
+        this.mProgramCache = programCache;
         final float density = context.getResources().getDisplayMetrics().density;
         final int buttonWidthPx = (int)(28.0f * density);
         this.mTouchWidthPx = (int)(buttonWidthPx * 1.5f);
-        this.mGlStateBackup = new GLStateBackup();
-        this.mShader = new ShaderProgram();
-        this.mSettingsButtonRenderer = new SettingsButtonRenderer(this.mShader, buttonWidthPx);
-        this.mAlignmentMarkerRenderer = new AlignmentMarkerRenderer(this.mShader, this.mTouchWidthPx, 4.0f * density);
+        this.mGlStateBackup = new GLStateBackup(RESTORED_GL_STATE);
+        this.mShader = new ShaderProgram(resourceRegistry);
+        this.mSettingsButtonRenderer = new SettingsButtonRenderer(resourceRegistry, this.mShader, buttonWidthPx);
+        this.mAlignmentMarkerRenderer = new AlignmentMarkerRenderer(resourceRegistry, this.mShader, this.mTouchWidthPx, 4.0f * density);
         this.mViewport = new Viewport();
     }
     
@@ -66,7 +72,11 @@ class UiLayer {
     }
     
     void initializeGl() {
-        this.mShader.initializeGl();
+        this.mVertexArrayObjectsEnabled = GLCapabilities.query().supportsVertexArrayObjects();
+        this.mGlStateBackup.setVertexArrayObjectsEnabled(this.mVertexArrayObjectsEnabled);
+        this.mSettingsButtonRenderer.setVertexArrayObjectsEnabled(this.mVertexArrayObjectsEnabled);
+        this.mAlignmentMarkerRenderer.setVertexArrayObjectsEnabled(this.mVertexArrayObjectsEnabled);
+        this.mShader.initializeGl(this.mProgramCache);
         this.mGlStateBackup.clearTrackedVertexAttributes();
         this.mGlStateBackup.addTrackedVertexAttribute(this.mShader.aPosition);
         this.mGlStateBackup.readFromGL();
@@ -76,6 +86,27 @@ class UiLayer {
         this.initialized = true;
     }
     
+    void releaseGl() {
+        if (!this.initialized) {
+            return;
+        }
+        this.mSettingsButtonRenderer.releaseGl();
+        this.mAlignmentMarkerRenderer.releaseGl();
+        this.mShader.releaseGl();
+        this.mGlStateBackup.invalidateStaticState();
+        this.mShouldUpdateViewport = true;
+        this.initialized = false;
+    }
+    
+    void abandonGl() {
+        this.mSettingsButtonRenderer.abandonGl();
+        this.mAlignmentMarkerRenderer.abandonGl();
+        this.mShader.abandonGl();
+        this.mGlStateBackup.invalidateStaticState();
+        this.mShouldUpdateViewport = true;
+        this.initialized = false;
+    }
+    
     void draw() {
         if (!this.getSettingsButtonEnabled() && !this.getAlignmentMarkerEnabled()) {
             return;
@@ -98,9 +129,24 @@ class UiLayer {
         if (this.getAlignmentMarkerEnabled()) {
             this.mAlignmentMarkerRenderer.draw();
         }
+        if (this.mVertexArrayObjectsEnabled) {
+            GLES30.glBindVertexArray(0);
+        }
         this.mGlStateBackup.writeToGL();
     }
     
+    void setStaticGLStateEnabled(final boolean enabled) {
+        this.mGlStateBackup.setStaticStateEnabled(enabled);
+    }
+    
+    void setStaticGLStateVerificationEnabled(final boolean enabled) {
+        this.mGlStateBackup.setStaticStateVerificationEnabled(enabled);
+    }
+    
+    void invalidateStaticGLState() {
+        this.mGlStateBackup.invalidateStaticState();
+    }
+    
     synchronized void setAlignmentMarkerEnabled(final boolean enabled) {
         if (this.mAlignmentMarkerEnabled != enabled) {
             this.mAlignmentMarkerEnabled = enabled;
@@ -179,13 +225,19 @@ class UiLayer {
     {
         private static final String VERTEX_SHADER = "uniform mat4 uMVPMatrix;\nattribute vec2 aPosition;\nvoid main() {\n    gl_Position = uMVPMatrix * vec4(aPosition, 0.0, 1.0);\n}\n";
         private static final String FRAGMENT_SHADER = "precision mediump float;\nuniform vec4 uColor;\nvoid main() {\n    gl_FragColor = uColor;\n}\n";
+        private final GLResourceRegistry mResourceRegistry;
         public int program;
         public int aPosition;
         public int uMvpMatrix;
         public int uColor;
         
-        void initializeGl() {
-            this.program = this.createProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        ShaderProgram(final GLResourceRegistry resourceRegistry) {
+            super();
+            this.mResourceRegistry = resourceRegistry;
+        }
+        
+        void initializeGl(final ProgramCache programCache) {
+            this.program = this.createProgram(VERTEX_SHADER, FRAGMENT_SHADER, programCache);
             if (this.program == 0) {
                 throw new RuntimeException("Could not create program");
             }
@@ -204,6 +256,15 @@ class UiLayer {
             }
         }
         
+        void releaseGl() {
+            this.mResourceRegistry.delete(GLResourceRegistry.PROGRAM, this.program);
+            this.program = 0;
+        }
+        
+        void abandonGl() {
+            this.program = 0;
+        }
+        
         private int loadShader(final int shaderType, final String source) {
             int shader = GLES20.glCreateShader(shaderType);
             if (shader != 0) {
@@ -221,13 +282,21 @@ class UiLayer {
             return shader;
         }
         
-        private int createProgram(final String vertexSource, final String fragmentSource) {
+        private int createProgram(final String vertexSource, final String fragmentSource, final ProgramCache programCache) {
+            if (programCache != null) {
+                final int cachedProgram = programCache.loadProgram(vertexSource, fragmentSource);
+                if (cachedProgram != 0) {
+                    this.mResourceRegistry.register(GLResourceRegistry.PROGRAM, cachedProgram, 0L);
+                    return cachedProgram;
+                }
+            }
             final int vertexShader = this.loadShader(GLES20.GL_VERTEX_SHADER, vertexSource);
             if (vertexShader == 0) {
                 return 0;
             }
             final int pixelShader = this.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
             if (pixelShader == 0) {
+                GLES20.glDeleteShader(vertexShader);
                 return 0;
             }
             int program = GLES20.glCreateProgram();
@@ -245,8 +314,14 @@ class UiLayer {
                     GLES20.glDeleteProgram(program);
                     program = 0;
                 }
+                else if (programCache != null) {
+                    programCache.storeProgram(program, vertexSource, fragmentSource);
+                }
                 checkGlError("glLinkProgram");
             }
+            GLES20.glDeleteShader(vertexShader);
+            GLES20.glDeleteShader(pixelShader);
+            this.mResourceRegistry.register(GLResourceRegistry.PROGRAM, program, 0L);
             return program;
         }
     }
@@ -257,14 +332,18 @@ class UiLayer {
         protected static final int COMPONENTS_PER_VERT = 2;
         private static final int DATA_STRIDE_BYTES = 8;
         private static final int DATA_POS_OFFSET = 0;
+        protected final GLResourceRegistry mResourceRegistry;
         protected int mArrayBufferId;
         protected int mElementBufferId;
+        protected int mVertexArrayId;
         protected ShaderProgram mShader;
         protected float[] mMvp;
         private int mNumIndices;
+        private boolean mVertexArrayObjectsEnabled;
         
-        MeshRenderer(final ShaderProgram shader) {
+        MeshRenderer(final GLResourceRegistry resourceRegistry, final ShaderProgram shader) {
             super();
+            this.mResourceRegistry = resourceRegistry;
             this.mArrayBufferId = -1;
             this.mElementBufferId = -1;
             this.mMvp = new float[16];
@@ -286,6 +365,33 @@ class UiLayer {
             GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, this.mElementBufferId);
             GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indexData.length * BYTES_PER_SHORT, indexBuffer, GLES20.GL_STATIC_DRAW);
             checkGlError("genAndBindBuffers");
+            this.mResourceRegistry.register(GLResourceRegistry.BUFFER, this.mArrayBufferId, vertexData.length * BYTES_PER_FLOAT);
+            this.mResourceRegistry.register(GLResourceRegistry.BUFFER, this.mElementBufferId, indexData.length * BYTES_PER_SHORT);
+            if (this.mVertexArrayId != 0) {
+                this.mResourceRegistry.delete(GLResourceRegistry.VERTEX_ARRAY, this.mVertexArrayId);
+                this.mVertexArrayId = 0;
+            }
+        }
+        
+        void setVertexArrayObjectsEnabled(final boolean enabled) {
+            this.mVertexArrayObjectsEnabled = enabled;
+        }
+        
+        void releaseGl() {
+            this.mResourceRegistry.delete(GLResourceRegistry.VERTEX_ARRAY, this.mVertexArrayId);
+            this.mVertexArrayId = 0;
+            if (this.mArrayBufferId != -1) {
+                this.mResourceRegistry.delete(GLResourceRegistry.BUFFER, this.mArrayBufferId);
+                this.mResourceRegistry.delete(GLResourceRegistry.BUFFER, this.mElementBufferId);
+                this.mArrayBufferId = -1;
+                this.mElementBufferId = -1;
+            }
+        }
+        
+        void abandonGl() {
+            this.mVertexArrayId = 0;
+            this.mArrayBufferId = -1;
+            this.mElementBufferId = -1;
         }
         
         void updateViewport(final Viewport viewport) {
@@ -297,11 +403,29 @@ class UiLayer {
             GLES20.glDisable(GLES20.GL_CULL_FACE);
             GLES20.glUseProgram(this.mShader.program);
             GLES20.glUniformMatrix4fv(this.mShader.uMvpMatrix, 1, false, this.mMvp, 0);
+            if (!this.mVertexArrayObjectsEnabled) {
+                this.setVertexAttributes();
+            }
+            else if (this.mVertexArrayId != 0) {
+                GLES30.glBindVertexArray(this.mVertexArrayId);
+            }
+            else {
+                final int[] vertexArrayIds = { 0 };
+                GLES30.glGenVertexArrays(1, vertexArrayIds, 0);
+                this.mVertexArrayId = vertexArrayIds[0];
+                this.mResourceRegistry.register(GLResourceRegistry.VERTEX_ARRAY, this.mVertexArrayId, 0L);
+                GLES30.glBindVertexArray(this.mVertexArrayId);
+                this.setVertexAttributes();
+                checkGlError("glBindVertexArray");
+            }
+            GLES20.glDrawElements(5, this.mNumIndices, GLES20.GL_UNSIGNED_SHORT, 0);
+        }
+        
+        private void setVertexAttributes() {
             GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, this.mArrayBufferId);
             GLES20.glVertexAttribPointer(this.mShader.aPosition, 2, GLES20.GL_FLOAT, false, 8, 0);
             GLES20.glEnableVertexAttribArray(this.mShader.aPosition);
             GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, this.mElementBufferId);
-            GLES20.glDrawElements(5, this.mNumIndices, GLES20.GL_UNSIGNED_SHORT, 0);
         }
     }
     
@@ -310,8 +434,8 @@ class UiLayer {
         private float mVerticalBorderPaddingPx;
         private float mLineThicknessPx;
         
-        AlignmentMarkerRenderer(final ShaderProgram shader, final float verticalBorderPaddingPx, final float lineThicknessPx) {
-            super(shader);
+        AlignmentMarkerRenderer(final GLResourceRegistry resourceRegistry, final ShaderProgram shader, final float verticalBorderPaddingPx, final float lineThicknessPx) {
+            super(resourceRegistry, shader);
             this.mVerticalBorderPaddingPx = verticalBorderPaddingPx;
             this.mLineThicknessPx = lineThicknessPx;
         }
@@ -352,8 +476,8 @@ class UiLayer {
         private int mButtonWidthPx;
         private int mColor;
         
-        SettingsButtonRenderer(final ShaderProgram shader, final int buttonWidthPx) {
-            super(shader);
+        SettingsButtonRenderer(final GLResourceRegistry resourceRegistry, final ShaderProgram shader, final int buttonWidthPx) {
+            super(resourceRegistry, shader);
             this.mColor = -3355444;
             this.mButtonWidthPx = buttonWidthPx;
         }
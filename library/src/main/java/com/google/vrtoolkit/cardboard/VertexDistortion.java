@@ -0,0 +1,135 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+
+public class VertexDistortion {
+    public static final String SHADER_SOURCE =
+            "uniform vec4 uVertexDistortionFov;\n"
+          + "uniform vec4 uVertexDistortionScreen;\n"
+          + "uniform vec2 uVertexDistortionCoefficients;\n"
+          + "vec4 distortPosition(vec4 position) {\n"
+          + "    vec2 tanAngle = (position.xy / position.w) * uVertexDistortionFov.xy + uVertexDistortionFov.zw;\n"
+          + "    float rSquared = dot(tanAngle, tanAngle);\n"
+          + "    float factor = 1.0 + rSquared * (uVertexDistortionCoefficients.x + rSquared * uVertexDistortionCoefficients.y);\n"
+          + "    vec2 screen = tanAngle * factor * uVertexDistortionScreen.xy + uVertexDistortionScreen.zw;\n"
+          + "    return vec4(screen * position.w, position.z, position.w);\n"
+          + "}\n";
+    public static final String FOV_UNIFORM = "uVertexDistortionFov";
+    public static final String SCREEN_UNIFORM = "uVertexDistortionScreen";
+    public static final String COEFFICIENTS_UNIFORM = "uVertexDistortionCoefficients";
+    private static final int POSITION_COMPONENTS = 3;
+    private static final int VERTICES_PER_TRIANGLE = 3;
+    private final float[] mFovTransform;
+    private final float[] mScreenTransform;
+    private final float[] mCoefficients;
+    
+    public VertexDistortion() {
+        super();
+        this.mFovTransform = new float[4];
+        this.mScreenTransform = new float[4];
+        this.mCoefficients = new float[2];
+    }
+    
+    void update(final FieldOfView fov, final Distortion inverseDistortion,
+                final float screenWidthTanAngle, final float screenHeightTanAngle,
+                final float xEyeOffsetTanAngle, final float yEyeOffsetTanAngle,
+                final float viewportXTanAngle, final float viewportWidthTanAngle) {
+        final float left = (float)Math.tan(Math.toRadians(fov.getLeft()));
+        final float right = (float)Math.tan(Math.toRadians(fov.getRight()));
+        final float bottom = (float)Math.tan(Math.toRadians(fov.getBottom()));
+        final float top = (float)Math.tan(Math.toRadians(fov.getTop()));
+        this.mFovTransform[0] = (left + right) / 2.0f;
+        this.mFovTransform[1] = (bottom + top) / 2.0f;
+        this.mFovTransform[2] = (right - left) / 2.0f;
+        this.mFovTransform[3] = (top - bottom) / 2.0f;
+        this.mScreenTransform[0] = 2.0f / viewportWidthTanAngle;
+        this.mScreenTransform[1] = 2.0f / screenHeightTanAngle;
+        this.mScreenTransform[2] = 2.0f * (xEyeOffsetTanAngle - viewportXTanAngle) / viewportWidthTanAngle - 1.0f;
+        this.mScreenTransform[3] = 2.0f * yEyeOffsetTanAngle / screenHeightTanAngle - 1.0f;
+        final float[] coefficients = inverseDistortion.getCoefficients();
+        for (int i = 0; i < this.mCoefficients.length; ++i) {
+            this.mCoefficients[i] = (i < coefficients.length) ? coefficients[i] : 0.0f;
+        }
+    }
+    
+    public float[] getFovTransform() {
+        return this.mFovTransform;
+    }
+    
+    public float[] getScreenTransform() {
+        return this.mScreenTransform;
+    }
+    
+    public float[] getCoefficients() {
+        return this.mCoefficients;
+    }
+    
+    public void setUniforms(final int fovLocation, final int screenLocation, final int coefficientsLocation) {
+        GLES20.glUniform4fv(fovLocation, 1, this.mFovTransform, 0);
+        GLES20.glUniform4fv(screenLocation, 1, this.mScreenTransform, 0);
+        GLES20.glUniform2fv(coefficientsLocation, 1, this.mCoefficients, 0);
+    }
+    
+    public static float[] tessellate(final float[] vertices, final int componentsPerVertex, final float maxEdgeLength) {
+        if (componentsPerVertex < POSITION_COMPONENTS) {
+            throw new IllegalArgumentException("Vertices must have at least three position components");
+        }
+        if (maxEdgeLength <= 0.0f) {
+            throw new IllegalArgumentException("Maximum edge length must be positive");
+        }
+        final int triangleStride = componentsPerVertex * VERTICES_PER_TRIANGLE;
+        if (vertices.length % triangleStride != 0) {
+            throw new IllegalArgumentException("Vertex data must describe whole triangles");
+        }
+        final int triangleCount = vertices.length / triangleStride;
+        final int[] subdivisions = new int[triangleCount];
+        int outputTriangles = 0;
+        for (int t = 0; t < triangleCount; ++t) {
+            final int a = t * triangleStride;
+            final float maxEdge = Math.max(edgeLength(vertices, a, a + componentsPerVertex),
+                    Math.max(edgeLength(vertices, a + componentsPerVertex, a + 2 * componentsPerVertex),
+                            edgeLength(vertices, a + 2 * componentsPerVertex, a)));
+            subdivisions[t] = Math.max(1, (int)Math.ceil(maxEdge / maxEdgeLength));
+            outputTriangles += subdivisions[t] * subdivisions[t];
+        }
+        final float[] result = new float[outputTriangles * triangleStride];
+        int offset = 0;
+        for (int t = 0; t < triangleCount; ++t) {
+            final int a = t * triangleStride;
+            final int n = subdivisions[t];
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < n - i; ++j) {
+                    offset = interpolate(vertices, a, componentsPerVertex, n, i, j, result, offset);
+                    offset = interpolate(vertices, a, componentsPerVertex, n, i + 1, j, result, offset);
+                    offset = interpolate(vertices, a, componentsPerVertex, n, i, j + 1, result, offset);
+                    if (j < n - i - 1) {
+                        offset = interpolate(vertices, a, componentsPerVertex, n, i + 1, j, result, offset);
+                        offset = interpolate(vertices, a, componentsPerVertex, n, i + 1, j + 1, result, offset);
+                        offset = interpolate(vertices, a, componentsPerVertex, n, i, j + 1, result, offset);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+    
+    private static float edgeLength(final float[] vertices, final int from, final int to) {
+        final float dx = vertices[to] - vertices[from];
+        final float dy = vertices[to + 1] - vertices[from + 1];
+        final float dz = vertices[to + 2] - vertices[from + 2];
+        return (float)Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    
+    private static int interpolate(final float[] vertices, final int triangle, final int componentsPerVertex,
+                                   final int n, final int i, final int j, final float[] result, final int offset) {
+        final float u = (float)i / n;
+        final float v = (float)j / n;
+        final float w = 1.0f - u - v;
+        final int b = triangle + componentsPerVertex;
+        final int c = triangle + 2 * componentsPerVertex;
+        for (int k = 0; k < componentsPerVertex; ++k) {
+            result[offset + k] = w * vertices[triangle + k] + u * vertices[b + k] + v * vertices[c + k];
+        }
+        return offset + componentsPerVertex;
+    }
+}
@@ -15,6 +15,8 @@ public interface CardboardDevice {
         private float trayBottomToLensHeight_;
         public float[] distortionCoefficients;
         private boolean hasMagnet_;
+        public float[] distortionCoefficientsRed;
+        public float[] distortionCoefficientsBlue;
         
         public static DeviceParams[] emptyArray() {
             if (DeviceParams._emptyArray == null) {
@@ -168,6 +170,8 @@ public interface CardboardDevice {
             this.trayBottomToLensHeight_ = 0.0f;
             this.distortionCoefficients = WireFormatNano.EMPTY_FLOAT_ARRAY;
             this.hasMagnet_ = false;
+            this.distortionCoefficientsRed = WireFormatNano.EMPTY_FLOAT_ARRAY;
+            this.distortionCoefficientsBlue = WireFormatNano.EMPTY_FLOAT_ARRAY;
             this.cachedSize = -1;
             return this;
         }
@@ -208,6 +212,22 @@ public interface CardboardDevice {
             if ((this.bitField0_ & 0x20) != 0x0) {
                 output.writeBool(10, this.hasMagnet_);
             }
+            if (this.distortionCoefficientsRed != null && this.distortionCoefficientsRed.length > 0) {
+                dataSize = 4 * this.distortionCoefficientsRed.length;
+                output.writeRawVarint32(106);
+                output.writeRawVarint32(dataSize);
+                for (int i = 0; i < this.distortionCoefficientsRed.length; ++i) {
+                    output.writeFloatNoTag(this.distortionCoefficientsRed[i]);
+                }
+            }
+            if (this.distortionCoefficientsBlue != null && this.distortionCoefficientsBlue.length > 0) {
+                dataSize = 4 * this.distortionCoefficientsBlue.length;
+                output.writeRawVarint32(114);
+                output.writeRawVarint32(dataSize);
+                for (int i = 0; i < this.distortionCoefficientsBlue.length; ++i) {
+                    output.writeFloatNoTag(this.distortionCoefficientsBlue[i]);
+                }
+            }
             super.writeTo(output);
         }
         
@@ -243,6 +263,16 @@ public interface CardboardDevice {
             if ((this.bitField0_ & 0x20) != 0x0) {
                 size += CodedOutputByteBufferNano.computeBoolSize(10, this.hasMagnet_);
             }
+            if (this.distortionCoefficientsRed != null && this.distortionCoefficientsRed.length > 0) {
+                dataSize = 4 * this.distortionCoefficientsRed.length;
+                size += dataSize;
+                size = ++size + CodedOutputByteBufferNano.computeRawVarint32Size(dataSize);
+            }
+            if (this.distortionCoefficientsBlue != null && this.distortionCoefficientsBlue.length > 0) {
+                dataSize = 4 * this.distortionCoefficientsBlue.length;
+                size += dataSize;
+                size = ++size + CodedOutputByteBufferNano.computeRawVarint32Size(dataSize);
+            }
             return size;
         }
         
@@ -364,6 +394,72 @@ public interface CardboardDevice {
                         this.bitField0_ |= 0x20;
                         continue;
                     }
+                    case 109: {
+                        arrayLength = WireFormatNano.getRepeatedFieldArrayLength(input, 109);
+                        i = ((this.distortionCoefficientsRed == null) ? 0 : this.distortionCoefficientsRed.length);
+                        newArray = new float[i + arrayLength];
+                        if (i != 0) {
+                            System.arraycopy(this.distortionCoefficientsRed, 0, newArray, 0, i);
+                        }
+                        while (i < newArray.length - 1) {
+                            newArray[i] = input.readFloat();
+                            input.readTag();
+                            ++i;
+                        }
+                        newArray[i] = input.readFloat();
+                        this.distortionCoefficientsRed = newArray;
+                        continue;
+                    }
+                    case 106: {
+                        length = input.readRawVarint32();
+                        limit = input.pushLimit(length);
+                        arrayLength2 = length / 4;
+                        j = ((this.distortionCoefficientsRed == null) ? 0 : this.distortionCoefficientsRed.length);
+                        newArray2 = new float[j + arrayLength2];
+                        if (j != 0) {
+                            System.arraycopy(this.distortionCoefficientsRed, 0, newArray2, 0, j);
+                        }
+                        while (j < newArray2.length) {
+                            newArray2[j] = input.readFloat();
+                            ++j;
+                        }
+                        this.distortionCoefficientsRed = newArray2;
+                        input.popLimit(limit);
+                        continue;
+                    }
+                    case 117: {
+                        arrayLength = WireFormatNano.getRepeatedFieldArrayLength(input, 117);
+                        i = ((this.distortionCoefficientsBlue == null) ? 0 : this.distortionCoefficientsBlue.length);
+                        newArray = new float[i + arrayLength];
+                        if (i != 0) {
+                            System.arraycopy(this.distortionCoefficientsBlue, 0, newArray, 0, i);
+                        }
+                        while (i < newArray.length - 1) {
+                            newArray[i] = input.readFloat();
+                            input.readTag();
+                            ++i;
+                        }
+                        newArray[i] = input.readFloat();
+                        this.distortionCoefficientsBlue = newArray;
+                        continue;
+                    }
+                    case 114: {
+                        length = input.readRawVarint32();
+                        limit = input.pushLimit(length);
+                        arrayLength2 = length / 4;
+                        j = ((this.distortionCoefficientsBlue == null) ? 0 : this.distortionCoefficientsBlue.length);
+                        newArray2 = new float[j + arrayLength2];
+                        if (j != 0) {
+                            System.arraycopy(this.distortionCoefficientsBlue, 0, newArray2, 0, j);
+                        }
+                        while (j < newArray2.length) {
+                            newArray2[j] = input.readFloat();
+                            ++j;
+                        }
+                        this.distortionCoefficientsBlue = newArray2;
+                        input.popLimit(limit);
+                        continue;
+                    }
                 }
             }
         }
@@ -27,6 +27,8 @@ public class HeadTracker implements SensorEventListener {
     private final float[] mTmpHeadView2;
     private boolean mNeckModelEnabled;
     private volatile boolean mTracking;
+    private volatile boolean mWarmResumeEnabled;
+    private long mStopTrackingClockTimeNs;
     private OrientationEKF mTracker;
     private SensorEventProvider mSensorEventProvider;
     private Clock mClock;
@@ -82,7 +84,12 @@ public class HeadTracker implements SensorEventListener {
         if (this.mTracking) {
             return;
         }
-        this.mTracker.reset();
+        if (this.mWarmResumeEnabled && this.mTracker.isReady()) {
+            this.mTracker.resume((this.mClock.nanoTime() - this.mStopTrackingClockTimeNs) * 1.0E-9);
+        }
+        else {
+            this.mTracker.reset();
+        }
         this.mSensorEventProvider.registerListener((SensorEventListener)this);
         this.mSensorEventProvider.start();
         this.mTracking = true;
@@ -94,9 +101,14 @@ public class HeadTracker implements SensorEventListener {
         }
         this.mSensorEventProvider.unregisterListener((SensorEventListener)this);
         this.mSensorEventProvider.stop();
+        this.mStopTrackingClockTimeNs = this.mClock.nanoTime();
         this.mTracking = false;
     }
     
+    public void setWarmResumeEnabled(final boolean enabled) {
+        this.mWarmResumeEnabled = enabled;
+    }
+    
     public void setGyroBias(final float[] gyroBias) {
         if (gyroBias == null) {
             this.mGyroBias.setZero();
@@ -146,6 +146,23 @@ public class OrientationEKF {
         this.alignedToNorth = false;
     }
     
+    public synchronized void resume(final double secondsSinceLastUpdate) {
+        this.sensorTimeStampGyro = 0L;
+        if (!this.alignedToGravity) {
+            return;
+        }
+        this.processGyroTempM2.set(this.mQ);
+        this.processGyroTempM2.scale(secondsSinceLastUpdate * secondsSinceLastUpdate);
+        this.mP.plusEquals(this.processGyroTempM2);
+        for (int i = 0; i < 3; ++i) {
+            if (this.mP.get(i, i) > 25.0) {
+                this.mP.setZero();
+                this.mP.setSameDiagonal(25.0);
+                break;
+            }
+        }
+    }
+    
     public boolean isReady() {
         return this.alignedToGravity;
     }
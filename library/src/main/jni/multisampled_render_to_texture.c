@@ -0,0 +1,28 @@
+#include <jni.h>
+#include <EGL/egl.h>
+#include <GLES2/gl2.h>
+#include <GLES2/gl2ext.h>
+
+static PFNGLFRAMEBUFFERTEXTURE2DMULTISAMPLEEXTPROC framebufferTexture2DMultisample;
+static PFNGLRENDERBUFFERSTORAGEMULTISAMPLEEXTPROC renderbufferStorageMultisample;
+
+JNIEXPORT jboolean JNICALL
+Java_com_google_vrtoolkit_cardboard_MultisampledRenderToTexture_nativeInit(JNIEnv* env, jclass clazz) {
+    framebufferTexture2DMultisample = (PFNGLFRAMEBUFFERTEXTURE2DMULTISAMPLEEXTPROC)
+            eglGetProcAddress("glFramebufferTexture2DMultisampleEXT");
+    renderbufferStorageMultisample = (PFNGLRENDERBUFFERSTORAGEMULTISAMPLEEXTPROC)
+            eglGetProcAddress("glRenderbufferStorageMultisampleEXT");
+    return framebufferTexture2DMultisample != NULL && renderbufferStorageMultisample != NULL;
+}
+
+JNIEXPORT void JNICALL
+Java_com_google_vrtoolkit_cardboard_MultisampledRenderToTexture_nativeFramebufferTexture2DMultisample(
+        JNIEnv* env, jclass clazz, jint target, jint attachment, jint textarget, jint texture, jint level, jint samples) {
+    framebufferTexture2DMultisample(target, attachment, textarget, texture, level, samples);
+}
+
+JNIEXPORT void JNICALL
+Java_com_google_vrtoolkit_cardboard_MultisampledRenderToTexture_nativeRenderbufferStorageMultisample(
+        JNIEnv* env, jclass clazz, jint target, jint samples, jint internalformat, jint width, jint height) {
+    renderbufferStorageMultisample(target, samples, internalformat, width, height);
+}
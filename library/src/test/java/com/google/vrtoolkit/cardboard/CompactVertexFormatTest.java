@@ -0,0 +1,127 @@
+package com.google.vrtoolkit.cardboard;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompactVertexFormatTest {
+    private static final int COMPONENTS_PER_VERT = 9;
+    private static final int COMPONENTS_PER_VERT_SINGLE_CHANNEL = 5;
+    private static final int COMPONENTS_PER_VERT_CHANNEL_PAIR = 7;
+    private static final int UV_OFFSET = 3;
+    private static final int VIGNETTE_OFFSET = 2;
+    private static final int VERTEX_COUNT = 1600;
+    private static final int[] SCREEN_WIDTHS = { 1280, 1920, 2560, 3840 };
+    private static final float MAX_UV_ERROR_TEXELS = 0.05f;
+    private static final float MAX_POSITION_ERROR = 0.5f / 32767.0f + 1.0e-7f;
+    private static final float MAX_VIGNETTE_ERROR = 0.5f / 255.0f + 1.0e-7f;
+    
+    @Test
+    public void roundTripStaysWithinUvTolerance() {
+        this.checkRoundTrip(COMPONENTS_PER_VERT);
+    }
+    
+    @Test
+    public void singleChannelRoundTripStaysWithinUvTolerance() {
+        this.checkRoundTrip(COMPONENTS_PER_VERT_SINGLE_CHANNEL);
+    }
+    
+    @Test
+    public void channelPairRoundTripStaysWithinUvTolerance() {
+        this.checkRoundTrip(COMPONENTS_PER_VERT_CHANNEL_PAIR);
+    }
+    
+    @Test
+    public void rangeEndpointsRoundTripExactly() {
+        final float[] vertexData = { -1.0f, 1.0f, 1.0f, 0.0f, 1.0f, 1.0f, 0.0f, 0.5f, 0.5f };
+        assertTrue(DistortionRenderer.fitsCompactRange(vertexData, COMPONENTS_PER_VERT));
+        final float[] decoded = this.packAndDecode(vertexData, COMPONENTS_PER_VERT);
+        assertEquals(-1.0f, decoded[0], 0.0f);
+        assertEquals(1.0f, decoded[1], 0.0f);
+        assertEquals(1.0f, decoded[VIGNETTE_OFFSET], 0.0f);
+        assertEquals(0.0f, decoded[UV_OFFSET], 0.0f);
+        assertEquals(1.0f, decoded[UV_OFFSET + 1], 0.0f);
+    }
+    
+    @Test
+    public void positionOutsideRangeFallsBackToFloatLayout() {
+        final float[] vertexData = this.createVertexData(COMPONENTS_PER_VERT, new Random(1L));
+        vertexData[COMPONENTS_PER_VERT * 10] = 1.01f;
+        assertFalse(DistortionRenderer.fitsCompactRange(vertexData, COMPONENTS_PER_VERT));
+        vertexData[COMPONENTS_PER_VERT * 10] = 0.0f;
+        vertexData[COMPONENTS_PER_VERT * 20 + 1] = -1.01f;
+        assertFalse(DistortionRenderer.fitsCompactRange(vertexData, COMPONENTS_PER_VERT));
+    }
+    
+    @Test
+    public void textureCoordOutsideRangeFallsBackToFloatLayout() {
+        final float[] vertexData = this.createVertexData(COMPONENTS_PER_VERT, new Random(2L));
+        assertTrue(DistortionRenderer.fitsCompactRange(vertexData, COMPONENTS_PER_VERT));
+        vertexData[COMPONENTS_PER_VERT * 30 + UV_OFFSET] = -0.001f;
+        assertFalse(DistortionRenderer.fitsCompactRange(vertexData, COMPONENTS_PER_VERT));
+        vertexData[COMPONENTS_PER_VERT * 30 + UV_OFFSET] = 0.5f;
+        vertexData[COMPONENTS_PER_VERT * 40 + COMPONENTS_PER_VERT - 1] = 1.001f;
+        assertFalse(DistortionRenderer.fitsCompactRange(vertexData, COMPONENTS_PER_VERT));
+    }
+    
+    private void checkRoundTrip(final int componentsPerVertex) {
+        final float[] vertexData = this.createVertexData(componentsPerVertex, new Random(componentsPerVertex));
+        assertTrue(DistortionRenderer.fitsCompactRange(vertexData, componentsPerVertex));
+        final float[] decoded = this.packAndDecode(vertexData, componentsPerVertex);
+        float maxUvError = 0.0f;
+        for (int i = 0; i < vertexData.length; i += componentsPerVertex) {
+            assertEquals(vertexData[i], decoded[i], MAX_POSITION_ERROR);
+            assertEquals(vertexData[i + 1], decoded[i + 1], MAX_POSITION_ERROR);
+            assertEquals(vertexData[i + VIGNETTE_OFFSET], decoded[i + VIGNETTE_OFFSET], MAX_VIGNETTE_ERROR);
+            for (int uv = UV_OFFSET; uv < componentsPerVertex; ++uv) {
+                maxUvError = Math.max(maxUvError, Math.abs(vertexData[i + uv] - decoded[i + uv]));
+            }
+        }
+        for (final int width : SCREEN_WIDTHS) {
+            assertTrue(new StringBuilder().append("UV error of ").append(maxUvError * width).append(" texels at width ").append(width).toString(),
+                    maxUvError * width <= MAX_UV_ERROR_TEXELS);
+        }
+    }
+    
+    private float[] createVertexData(final int componentsPerVertex, final Random random) {
+        final float[] vertexData = new float[VERTEX_COUNT * componentsPerVertex];
+        for (int i = 0; i < vertexData.length; i += componentsPerVertex) {
+            vertexData[i] = random.nextFloat() * 2.0f - 1.0f;
+            vertexData[i + 1] = random.nextFloat() * 2.0f - 1.0f;
+            vertexData[i + VIGNETTE_OFFSET] = random.nextFloat();
+            for (int uv = UV_OFFSET; uv < componentsPerVertex; ++uv) {
+                vertexData[i + uv] = random.nextFloat();
+            }
+        }
+        return vertexData;
+    }
+    
+    private float[] packAndDecode(final float[] vertexData, final int componentsPerVertex) {
+        final int uvComponents = componentsPerVertex - UV_OFFSET;
+        final int strideBytes = 4 + uvComponents * 2 + 4;
+        final int vertexCount = vertexData.length / componentsPerVertex;
+        final ByteBuffer packed = ByteBuffer.allocate(vertexCount * strideBytes).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < vertexData.length; i += componentsPerVertex) {
+            DistortionRenderer.putCompactVertex(packed, vertexData, i, componentsPerVertex);
+        }
+        assertEquals(packed.capacity(), packed.position());
+        packed.position(0);
+        final float[] decoded = new float[vertexData.length];
+        for (int i = 0; i < decoded.length; i += componentsPerVertex) {
+            decoded[i] = Math.max(packed.getShort() / 32767.0f, -1.0f);
+            decoded[i + 1] = Math.max(packed.getShort() / 32767.0f, -1.0f);
+            for (int uv = UV_OFFSET; uv < componentsPerVertex; ++uv) {
+                decoded[i + uv] = (packed.getShort() & 0xFFFF) / 65535.0f;
+            }
+            decoded[i + VIGNETTE_OFFSET] = (packed.get() & 0xFF) / 255.0f;
+            packed.position(packed.position() + 3);
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,150 @@
+package com.google.vrtoolkit.cardboard;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EyeTransformTest {
+    private static final float HALF_IPD = 0.032f;
+    private static final float Z_NEAR = 0.1f;
+    private static final float Z_FAR = 100.0f;
+    private static final int WARMUP_FRAMES = 20000;
+    private static final int MEASURED_FRAMES = 10000;
+    
+    @Test
+    public void translateHeadViewMatchesTranslateThenMultiply() {
+        final float[] headView = new float[16];
+        for (int i = 0; i < headView.length; ++i) {
+            headView[i] = 0.25f * i - 1.5f;
+        }
+        final float[] translate = new float[16];
+        final float[] expected = new float[16];
+        final float[] actual = new float[16];
+        for (final float x : new float[] { HALF_IPD, -HALF_IPD }) {
+            for (int i = 0; i < translate.length; ++i) {
+                translate[i] = (i % 5 == 0) ? 1.0f : 0.0f;
+            }
+            translate[12] = x;
+            multiply(expected, translate, headView);
+            CardboardView.translateHeadView(actual, headView, x);
+            assertArrayEquals(expected, actual, 1.0E-6f);
+        }
+    }
+    
+    @Test
+    public void steadyStateFrameDoesNotAllocate() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        final FramePipeline pipeline = new FramePipeline();
+        for (int i = 0; i < WARMUP_FRAMES; ++i) {
+            pipeline.runFrame(i);
+        }
+        final long threadId = Thread.currentThread().getId();
+        threadBean.getThreadAllocatedBytes(threadId);
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_FRAMES; ++i) {
+            pipeline.runFrame(i);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(0L, allocated);
+    }
+    
+    @Test
+    public void fovChangePropagatesThroughPublishedFrame() {
+        final FramePipeline pipeline = new FramePipeline();
+        pipeline.runFrame(0);
+        final float[] perspective = pipeline.renderLeftEye.getPerspective(Z_NEAR, Z_FAR);
+        assertFalse(pipeline.renderLeftEye.isProjectionChanged());
+        pipeline.leftEye.getFov().setLeft(50.0f);
+        pipeline.leftEye.setProjectionChanged();
+        pipeline.publishAndRead(1);
+        assertTrue(pipeline.renderLeftEye.isProjectionChanged());
+        assertFalse(pipeline.renderRightEye.isProjectionChanged());
+        assertEquals(50.0f, pipeline.renderLeftEye.getFov().getLeft(), 0.0f);
+        final float[] updated = pipeline.renderLeftEye.getPerspective(Z_NEAR, Z_FAR);
+        assertSame(perspective, updated);
+        assertFalse(pipeline.renderLeftEye.isProjectionChanged());
+        final float[] expected = new float[16];
+        pipeline.leftEye.getFov().toPerspectiveMatrix(Z_NEAR, Z_FAR, expected, 0);
+        assertArrayEquals(expected, updated, 0.0f);
+    }
+    
+    @Test
+    public void unchangedFovKeepsCachedPerspective() {
+        final FramePipeline pipeline = new FramePipeline();
+        pipeline.runFrame(0);
+        final float[] perspective = pipeline.renderRightEye.getPerspective(Z_NEAR, Z_FAR);
+        final float[] expected = perspective.clone();
+        pipeline.renderRightEye.setProjectionChanged();
+        pipeline.publishAndRead(1);
+        assertSame(perspective, pipeline.renderRightEye.getPerspective(Z_NEAR, Z_FAR));
+        assertFalse(pipeline.renderRightEye.isProjectionChanged());
+        assertArrayEquals(expected, perspective, 0.0f);
+    }
+    
+    private static void multiply(final float[] result, final float[] lhs, final float[] rhs) {
+        for (int column = 0; column < 4; ++column) {
+            for (int row = 0; row < 4; ++row) {
+                float sum = 0.0f;
+                for (int i = 0; i < 4; ++i) {
+                    sum += lhs[i * 4 + row] * rhs[column * 4 + i];
+                }
+                result[column * 4 + row] = sum;
+            }
+        }
+    }
+    
+    private static class FramePipeline {
+        final HeadTransform head;
+        final Eye leftEye;
+        final Eye rightEye;
+        final Eye monocular;
+        final FrameParamsBuffer buffer;
+        final HeadTransform renderHead;
+        final Eye renderLeftEye;
+        final Eye renderRightEye;
+        final Eye renderMonocular;
+        
+        FramePipeline() {
+            super();
+            this.head = new HeadTransform();
+            this.leftEye = new Eye(Eye.Type.LEFT);
+            this.rightEye = new Eye(Eye.Type.RIGHT);
+            this.monocular = new Eye(Eye.Type.MONOCULAR);
+            this.buffer = new FrameParamsBuffer();
+            this.renderHead = new HeadTransform();
+            this.renderLeftEye = new Eye(Eye.Type.LEFT);
+            this.renderRightEye = new Eye(Eye.Type.RIGHT);
+            this.renderMonocular = new Eye(Eye.Type.MONOCULAR);
+            final FieldOfView fov = new FieldOfView(40.0f, 40.0f, 40.0f, 40.0f);
+            this.leftEye.getFov().copy(fov);
+            this.rightEye.getFov().copy(fov);
+            this.monocular.getFov().copy(fov);
+        }
+        
+        void publishAndRead(final int frame) {
+            final float[] headView = this.head.getHeadView();
+            for (int i = 0; i < headView.length; ++i) {
+                headView[i] = (float)(frame + i);
+            }
+            CardboardView.translateHeadView(this.leftEye.getEyeView(), headView, HALF_IPD);
+            CardboardView.translateHeadView(this.rightEye.getEyeView(), headView, -HALF_IPD);
+            this.buffer.publish(this.head, this.leftEye, this.rightEye, this.monocular);
+            this.buffer.read(this.renderHead, this.renderLeftEye, this.renderRightEye, this.renderMonocular);
+        }
+        
+        void runFrame(final int frame) {
+            this.publishAndRead(frame);
+            this.renderLeftEye.getPerspective(Z_NEAR, Z_FAR);
+            this.renderRightEye.getPerspective(Z_NEAR, Z_FAR);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.google.vrtoolkit.cardboard;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameParamsBufferTest {
+    private static final int FRAME_COUNT = 200000;
+    private static final int READER_COUNT = 3;
+    
+    @Test
+    public void readBeforePublishReturnsZero() {
+        final FrameParamsBuffer buffer = new FrameParamsBuffer();
+        assertEquals(0L, buffer.read(new HeadTransform(), new Eye(Eye.Type.LEFT), new Eye(Eye.Type.RIGHT), new Eye(Eye.Type.MONOCULAR)));
+        assertEquals(0L, buffer.getFrameIndex());
+    }
+    
+    @Test
+    public void readReturnsLatestPublishedFrame() {
+        final FrameParamsBuffer buffer = new FrameParamsBuffer();
+        final Frame frame = new Frame();
+        for (int i = 1; i <= 5; ++i) {
+            frame.fill(i);
+            buffer.publish(frame.head, frame.leftEye, frame.rightEye, frame.monocular);
+        }
+        final Frame result = new Frame();
+        assertEquals(5L, buffer.read(result.head, result.leftEye, result.rightEye, result.monocular));
+        assertEquals(5L, buffer.getFrameIndex());
+        assertNull(result.check(5L));
+    }
+    
+    @Test
+    public void concurrentReadsNeverObserveTornFrames() throws InterruptedException {
+        final FrameParamsBuffer buffer = new FrameParamsBuffer();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final Thread[] readers = new Thread[READER_COUNT];
+        final long[] readCounts = new long[READER_COUNT];
+        for (int i = 0; i < READER_COUNT; ++i) {
+            final int readerIndex = i;
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Frame frame = new Frame();
+                    long previousFrameIndex = 0L;
+                    while (running.get() && failure.get() == null) {
+                        final long frameIndex = buffer.read(frame.head, frame.leftEye, frame.rightEye, frame.monocular);
+                        if (frameIndex == 0L) {
+                            continue;
+                        }
+                        String error = frame.check(frameIndex);
+                        if (error == null && frameIndex < previousFrameIndex) {
+                            error = new StringBuilder().append("Frame index went backwards from ").append(previousFrameIndex).append(" to ").append(frameIndex).toString();
+                        }
+                        if (error != null) {
+                            failure.compareAndSet(null, error);
+                            return;
+                        }
+                        previousFrameIndex = frameIndex;
+                        ++readCounts[readerIndex];
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        final Frame frame = new Frame();
+        for (int i = 1; i <= FRAME_COUNT && failure.get() == null; ++i) {
+            frame.fill(i);
+            buffer.publish(frame.head, frame.leftEye, frame.rightEye, frame.monocular);
+        }
+        running.set(false);
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        for (final long readCount : readCounts) {
+            assertTrue(readCount > 0L);
+        }
+    }
+    
+    private static class Frame {
+        final HeadTransform head;
+        final Eye leftEye;
+        final Eye rightEye;
+        final Eye monocular;
+        
+        Frame() {
+            super();
+            this.head = new HeadTransform();
+            this.leftEye = new Eye(Eye.Type.LEFT);
+            this.rightEye = new Eye(Eye.Type.RIGHT);
+            this.monocular = new Eye(Eye.Type.MONOCULAR);
+        }
+        
+        void fill(final long frameIndex) {
+            final float value = (float)frameIndex;
+            final float[] headView = this.head.getHeadView();
+            for (int i = 0; i < headView.length; ++i) {
+                headView[i] = value;
+            }
+            fillEye(this.leftEye, value, 1.0f);
+            fillEye(this.rightEye, value, 2.0f);
+            fillEye(this.monocular, value, 3.0f);
+        }
+        
+        String check(final long frameIndex) {
+            final float value = (float)frameIndex;
+            final float[] headView = this.head.getHeadView();
+            for (int i = 0; i < headView.length; ++i) {
+                if (headView[i] != value) {
+                    return mismatch("head view", frameIndex, headView[i]);
+                }
+            }
+            String error = checkEye(this.leftEye, value, 1.0f, frameIndex);
+            if (error == null) {
+                error = checkEye(this.rightEye, value, 2.0f, frameIndex);
+            }
+            if (error == null) {
+                error = checkEye(this.monocular, value, 3.0f, frameIndex);
+            }
+            return error;
+        }
+        
+        private static void fillEye(final Eye eye, final float value, final float eyeOffset) {
+            final float[] eyeView = eye.getEyeView();
+            for (int i = 0; i < eyeView.length; ++i) {
+                eyeView[i] = value + eyeOffset;
+            }
+            final FieldOfView fov = eye.getFov();
+            fov.setLeft(value);
+            fov.setRight(value + eyeOffset);
+            fov.setBottom(value);
+            fov.setTop(value + eyeOffset);
+            final int viewportValue = (int)value;
+            eye.getViewport().setViewport(viewportValue, viewportValue, viewportValue + (int)eyeOffset, viewportValue + (int)eyeOffset);
+        }
+        
+        private static String checkEye(final Eye eye, final float value, final float eyeOffset, final long frameIndex) {
+            final float[] eyeView = eye.getEyeView();
+            for (int i = 0; i < eyeView.length; ++i) {
+                if (eyeView[i] != value + eyeOffset) {
+                    return mismatch("eye view", frameIndex, eyeView[i]);
+                }
+            }
+            final FieldOfView fov = eye.getFov();
+            if (fov.getLeft() != value || fov.getRight() != value + eyeOffset || fov.getBottom() != value || fov.getTop() != value + eyeOffset) {
+                return mismatch("field of view", frameIndex, fov.getLeft());
+            }
+            final Viewport viewport = eye.getViewport();
+            final int viewportValue = (int)value;
+            if (viewport.x != viewportValue || viewport.y != viewportValue || viewport.width != viewportValue + (int)eyeOffset
+                    || viewport.height != viewportValue + (int)eyeOffset) {
+                return mismatch("viewport", frameIndex, viewport.x);
+            }
+            return null;
+        }
+        
+        private static String mismatch(final String field, final long frameIndex, final float actual) {
+            return new StringBuilder().append("Torn ").append(field).append(" for frame ").append(frameIndex).append(": ").append(actual).toString();
+        }
+    }
+}
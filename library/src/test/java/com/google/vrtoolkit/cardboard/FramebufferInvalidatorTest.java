@@ -0,0 +1,93 @@
+package com.google.vrtoolkit.cardboard;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FramebufferInvalidatorTest {
+    private static final String OFFSCREEN_DEPTH_STENCIL = trace(GLES20.GL_FRAMEBUFFER, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_STENCIL_ATTACHMENT);
+    private static final String RESOLVED_OFFSCREEN = trace(GLES30.GL_READ_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0, GLES20.GL_DEPTH_ATTACHMENT, GLES20.GL_STENCIL_ATTACHMENT);
+    private static final String DEFAULT_DEPTH_STENCIL = trace(GLES20.GL_FRAMEBUFFER, GLES30.GL_DEPTH, GLES30.GL_STENCIL);
+    
+    @Test
+    public void singleSampledFrameKeepsOffscreenColor() {
+        final RecordingBackend backend = new RecordingBackend();
+        final FramebufferInvalidator invalidator = new FramebufferInvalidator(backend);
+        invalidator.setEnabled(true);
+        invalidator.beginOffscreenPass();
+        invalidator.endOffscreenPass();
+        invalidator.endFrame(0);
+        assertEquals(Arrays.asList(OFFSCREEN_DEPTH_STENCIL, OFFSCREEN_DEPTH_STENCIL, DEFAULT_DEPTH_STENCIL), backend.calls);
+    }
+    
+    @Test
+    public void startOfFrameNeverInvalidatesColor() {
+        final RecordingBackend backend = new RecordingBackend();
+        final FramebufferInvalidator invalidator = new FramebufferInvalidator(backend);
+        invalidator.setEnabled(true);
+        invalidator.beginOffscreenPass();
+        assertEquals(1, backend.calls.size());
+        assertFalse(backend.calls.get(0).contains(String.valueOf(GLES20.GL_COLOR_ATTACHMENT0)));
+    }
+    
+    @Test
+    public void multisampledFrameDiscardsResolvedSource() {
+        final RecordingBackend backend = new RecordingBackend();
+        final FramebufferInvalidator invalidator = new FramebufferInvalidator(backend);
+        invalidator.setEnabled(true);
+        invalidator.beginOffscreenPass();
+        invalidator.endOffscreenPass();
+        invalidator.endResolve();
+        invalidator.endFrame(0);
+        assertEquals(Arrays.asList(OFFSCREEN_DEPTH_STENCIL, OFFSCREEN_DEPTH_STENCIL, RESOLVED_OFFSCREEN, DEFAULT_DEPTH_STENCIL), backend.calls);
+    }
+    
+    @Test
+    public void appFramebufferIsLeftAlone() {
+        final RecordingBackend backend = new RecordingBackend();
+        final FramebufferInvalidator invalidator = new FramebufferInvalidator(backend);
+        invalidator.setEnabled(true);
+        invalidator.beginOffscreenPass();
+        invalidator.endOffscreenPass();
+        invalidator.endFrame(7);
+        assertEquals(Arrays.asList(OFFSCREEN_DEPTH_STENCIL, OFFSCREEN_DEPTH_STENCIL), backend.calls);
+    }
+    
+    @Test
+    public void disabledInvalidatorIssuesNoCalls() {
+        final RecordingBackend backend = new RecordingBackend();
+        final FramebufferInvalidator invalidator = new FramebufferInvalidator(backend);
+        invalidator.beginOffscreenPass();
+        invalidator.endOffscreenPass();
+        invalidator.endResolve();
+        invalidator.endFrame(0);
+        assertTrue(backend.calls.isEmpty());
+    }
+    
+    private static String trace(final int target, final int... attachments) {
+        return new StringBuilder().append(target).append(' ').append(Arrays.toString(attachments)).toString();
+    }
+    
+    private static class RecordingBackend implements FramebufferInvalidator.Backend {
+        final List<String> calls;
+        
+        RecordingBackend() {
+            super();
+            this.calls = new ArrayList<String>();
+        }
+        
+        @Override
+        public void invalidateFramebuffer(final int target, final int[] attachments) {
+            this.calls.add(trace(target, attachments));
+        }
+    }
+}
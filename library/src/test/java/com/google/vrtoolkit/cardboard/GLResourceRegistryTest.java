@@ -0,0 +1,48 @@
+package com.google.vrtoolkit.cardboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GLResourceRegistryTest {
+    @Test
+    public void registriesTrackResourcesIndependently() {
+        final GLResourceRegistry first = new GLResourceRegistry();
+        final GLResourceRegistry second = new GLResourceRegistry();
+        first.register(GLResourceRegistry.TEXTURE, 1, 1024L);
+        first.register(GLResourceRegistry.BUFFER, 2, 64L);
+        second.register(GLResourceRegistry.TEXTURE, 1, 4096L);
+        assertEquals(1, first.getLiveCount(GLResourceRegistry.TEXTURE));
+        assertEquals(1, first.getLiveCount(GLResourceRegistry.BUFFER));
+        assertEquals(1088L, first.getLiveBytes());
+        assertEquals(1, second.getLiveCount(GLResourceRegistry.TEXTURE));
+        assertEquals(0, second.getLiveCount(GLResourceRegistry.BUFFER));
+        assertEquals(4096L, second.getLiveBytes());
+        second.unregister(GLResourceRegistry.TEXTURE, 1);
+        assertEquals(1, first.getLiveCount(GLResourceRegistry.TEXTURE));
+        assertEquals(0L, second.getLiveBytes());
+    }
+    
+    @Test
+    public void reregisteringReplacesBytes() {
+        final GLResourceRegistry registry = new GLResourceRegistry();
+        registry.register(GLResourceRegistry.RENDERBUFFER, 3, 100L);
+        registry.register(GLResourceRegistry.RENDERBUFFER, 3, 250L);
+        assertEquals(1, registry.getLiveCount(GLResourceRegistry.RENDERBUFFER));
+        assertEquals(250L, registry.getLiveBytes());
+    }
+    
+    @Test
+    public void abandonUnregistersOnlyItsOwnResources() {
+        final GLResourceRegistry first = new GLResourceRegistry();
+        final GLResourceRegistry second = new GLResourceRegistry();
+        first.register(GLResourceRegistry.PROGRAM, 5, 0L);
+        first.register(GLResourceRegistry.TEXTURE, 6, 512L);
+        second.register(GLResourceRegistry.PROGRAM, 5, 0L);
+        first.abandon();
+        assertEquals(0, first.getLiveCount(GLResourceRegistry.PROGRAM));
+        assertEquals(0, first.getLiveCount(GLResourceRegistry.TEXTURE));
+        assertEquals(0L, first.getLiveBytes());
+        assertEquals(1, second.getLiveCount(GLResourceRegistry.PROGRAM));
+    }
+}
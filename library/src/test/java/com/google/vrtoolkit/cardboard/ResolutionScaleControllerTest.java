@@ -0,0 +1,126 @@
+package com.google.vrtoolkit.cardboard;
+
+import com.google.vrtoolkit.cardboard.sensors.Clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResolutionScaleControllerTest {
+    private static final long FRAME_TIME_NANOS = 16666667L;
+    private static final int FRAME_COUNT = 600;
+    private FakeClock mClock;
+    
+    @Before
+    public void setUp() {
+        this.mClock = new FakeClock();
+    }
+    
+    @Test
+    public void steadyFrameRateKeepsMaximumScale() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            assertEquals(1.0f, this.runFrame(controller, FRAME_TIME_NANOS), 0.0f);
+        }
+    }
+    
+    @Test
+    public void steadyFrameRateWithJitterNeverDecreasesScale() {
+        final ResolutionScaleController controller = new ResolutionScaleController(0.75f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        float previousScale = controller.getScale();
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            final long jitter = (i % 2 == 0) ? 1500000L : -1500000L;
+            final float scale = this.runFrame(controller, FRAME_TIME_NANOS + jitter);
+            assertTrue(scale >= previousScale);
+            previousScale = scale;
+        }
+    }
+    
+    @Test
+    public void occasionalMissedFrameKeepsScale() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            final long interval = (i % 30 == 29) ? 2L * FRAME_TIME_NANOS : FRAME_TIME_NANOS;
+            assertEquals(1.0f, this.runFrame(controller, interval), 0.0f);
+        }
+    }
+    
+    @Test
+    public void sustainedMissedFramesDecreaseScale() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        float scale = 1.0f;
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            scale = this.runFrame(controller, 2L * FRAME_TIME_NANOS);
+        }
+        assertEquals(0.5f, scale, 1.0e-4f);
+    }
+    
+    @Test
+    public void gpuTimeWithinBudgetKeepsMaximumScale() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        controller.setGpuTimingAvailable(true);
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            assertEquals(1.0f, this.runGpuFrame(controller, FRAME_TIME_NANOS / 2L), 0.0f);
+        }
+    }
+    
+    @Test
+    public void gpuTimeOverBudgetDecreasesScale() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        controller.setGpuTimingAvailable(true);
+        float scale = 1.0f;
+        for (int i = 0; i < 10; ++i) {
+            scale = this.runGpuFrame(controller, 2L * FRAME_TIME_NANOS);
+        }
+        assertTrue(scale < 1.0f);
+    }
+    
+    @Test
+    public void frameIntervalIgnoredWhenGpuTimingAvailable() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        controller.setGpuTimingAvailable(true);
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            assertEquals(1.0f, this.runFrame(controller, 2L * FRAME_TIME_NANOS), 0.0f);
+        }
+    }
+    
+    @Test
+    public void missingGpuSampleIsIgnored() {
+        final ResolutionScaleController controller = new ResolutionScaleController(1.0f, 0.5f, 1.0f, FRAME_TIME_NANOS, this.mClock);
+        controller.setGpuTimingAvailable(true);
+        for (int i = 0; i < FRAME_COUNT; ++i) {
+            assertEquals(1.0f, this.runGpuFrame(controller, -1L), 0.0f);
+        }
+    }
+    
+    private float runFrame(final ResolutionScaleController controller, final long intervalNanos) {
+        this.mClock.advance(intervalNanos);
+        controller.endFrame();
+        return controller.update();
+    }
+    
+    private float runGpuFrame(final ResolutionScaleController controller, final long gpuFrameNanos) {
+        controller.addGpuFrameTime(gpuFrameNanos);
+        return this.runFrame(controller, FRAME_TIME_NANOS);
+    }
+    
+    private static class FakeClock implements Clock {
+        private long mNanos;
+        
+        FakeClock() {
+            super();
+            this.mNanos = 1000000000L;
+        }
+        
+        void advance(final long nanos) {
+            this.mNanos += nanos;
+        }
+        
+        @Override
+        public long nanoTime() {
+            return this.mNanos;
+        }
+    }
+}
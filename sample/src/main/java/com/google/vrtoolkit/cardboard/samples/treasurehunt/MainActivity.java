@@ -19,11 +19,14 @@ package com.google.vrtoolkit.cardboard.samples.treasurehunt;
 import com.google.vrtoolkit.cardboard.CardboardActivity;
 import com.google.vrtoolkit.cardboard.CardboardView;
 import com.google.vrtoolkit.cardboard.Eye;
+import com.google.vrtoolkit.cardboard.FrameInfo;
 import com.google.vrtoolkit.cardboard.HeadTransform;
+import com.google.vrtoolkit.cardboard.SinglePassStereo;
 import com.google.vrtoolkit.cardboard.Viewport;
 
 import android.content.Context;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 import android.opengl.Matrix;
 import android.os.Bundle;
 import android.os.Vibrator;
@@ -41,8 +44,12 @@ import javax.microedition.khronos.egl.EGLConfig;
 
 /**
  * A Cardboard sample application.
+ *
+ * When the GL context supports it, both eyes are drawn in a single pass with instanced draw calls
+ * (see {@link #onDrawEyes}); otherwise the view falls back to calling {@link #onDrawEye} per eye.
  */
-public class MainActivity extends CardboardActivity implements CardboardView.StereoRenderer {
+public class MainActivity extends CardboardActivity
+        implements CardboardView.SinglePassStereoRenderer, CardboardView.TimedStereoRenderer {
 
     private static final String TAG = "MainActivity";
 
@@ -51,11 +58,13 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
 
     private static final float CAMERA_Z = 0.01f;
     private static final float TIME_DELTA = 0.3f;
+    private static final float DEGREES_PER_SECOND = TIME_DELTA * 60.0f;
 
     private static final float YAW_LIMIT = 0.12f;
     private static final float PITCH_LIMIT = 0.12f;
 
     private static final int COORDS_PER_VERTEX = 3;
+    private static final int EYE_COUNT = SinglePassStereo.EYE_COUNT;
 
     private static final WorldLayoutData DATA = new WorldLayoutData();
 
@@ -64,6 +73,15 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
 
     private final float[] mLightPosInEyeSpace = new float[4];
 
+    // Per-eye uniforms for the single-pass path, laid out as arrays of EYE_COUNT elements.
+    private final float[] mStereoLightPosInEyeSpace = new float[3 * EYE_COUNT];
+    private final float[] mStereoCubeModelView = new float[16 * EYE_COUNT];
+    private final float[] mStereoCubeModelViewProjection = new float[16 * EYE_COUNT];
+    private final float[] mStereoFloorModelView = new float[16 * EYE_COUNT];
+    private final float[] mStereoFloorModelViewProjection = new float[16 * EYE_COUNT];
+    private final float[] mEyeClipTransforms =
+            new float[SinglePassStereo.CLIP_TRANSFORM_COMPONENTS * EYE_COUNT];
+
     private FloatBuffer mFloorVertices;
     private FloatBuffer mFloorColors;
     private FloatBuffer mFloorNormals;
@@ -92,6 +110,27 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     private int mFloorModelViewProjectionParam;
     private int mFloorLightPosParam;
 
+    private int mCubeStereoProgram;
+    private int mFloorStereoProgram;
+
+    private int mCubeStereoPositionParam;
+    private int mCubeStereoNormalParam;
+    private int mCubeStereoColorParam;
+    private int mCubeStereoModelParam;
+    private int mCubeStereoModelViewParam;
+    private int mCubeStereoModelViewProjectionParam;
+    private int mCubeStereoLightPosParam;
+    private int mCubeStereoEyeClipTransformParam;
+
+    private int mFloorStereoPositionParam;
+    private int mFloorStereoNormalParam;
+    private int mFloorStereoColorParam;
+    private int mFloorStereoModelParam;
+    private int mFloorStereoModelViewParam;
+    private int mFloorStereoModelViewProjectionParam;
+    private int mFloorStereoLightPosParam;
+    private int mFloorStereoEyeClipTransformParam;
+
     private float[] mModelCube;
     private float[] mCamera;
     private float[] mView;
@@ -299,6 +338,10 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
 
         checkGLError("Floor program params");
 
+        if (getCardboardView().isSinglePassStereoSupported()) {
+            createStereoPrograms();
+        }
+
         GLES20.glEnable(GLES20.GL_DEPTH_TEST);
 
         // Object first appears directly in front of user.
@@ -311,6 +354,72 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
         checkGLError("onSurfaceCreated");
     }
 
+    /**
+     * Creates the programs used to draw both eyes in a single pass.
+     *
+     * These use GLSL ES 3.00 so that the vertex shader can select the eye's matrices with
+     * gl_InstanceID. Each eye is squeezed into its half of the viewport and clipped there in the
+     * fragment shader.
+     */
+    private void createStereoPrograms() {
+        int vertexShader = loadGLShader(GLES20.GL_VERTEX_SHADER, R.raw.light_vertex_stereo);
+        int gridShader = loadGLShader(GLES20.GL_FRAGMENT_SHADER, R.raw.grid_fragment_stereo);
+        int passthroughShader =
+                loadGLShader(GLES20.GL_FRAGMENT_SHADER, R.raw.passthrough_fragment_stereo);
+
+        mCubeStereoProgram = GLES20.glCreateProgram();
+        GLES20.glAttachShader(mCubeStereoProgram, vertexShader);
+        GLES20.glAttachShader(mCubeStereoProgram, passthroughShader);
+        GLES20.glLinkProgram(mCubeStereoProgram);
+        GLES20.glUseProgram(mCubeStereoProgram);
+
+        checkGLError("Cube stereo program");
+
+        mCubeStereoPositionParam = GLES20.glGetAttribLocation(mCubeStereoProgram, "a_Position");
+        mCubeStereoNormalParam = GLES20.glGetAttribLocation(mCubeStereoProgram, "a_Normal");
+        mCubeStereoColorParam = GLES20.glGetAttribLocation(mCubeStereoProgram, "a_Color");
+
+        mCubeStereoModelParam = GLES20.glGetUniformLocation(mCubeStereoProgram, "u_Model");
+        mCubeStereoModelViewParam = GLES20.glGetUniformLocation(mCubeStereoProgram, "u_MVMatrix");
+        mCubeStereoModelViewProjectionParam =
+                GLES20.glGetUniformLocation(mCubeStereoProgram, "u_MVP");
+        mCubeStereoLightPosParam = GLES20.glGetUniformLocation(mCubeStereoProgram, "u_LightPos");
+        mCubeStereoEyeClipTransformParam =
+                GLES20.glGetUniformLocation(mCubeStereoProgram, "u_EyeClipTransform");
+
+        GLES20.glEnableVertexAttribArray(mCubeStereoPositionParam);
+        GLES20.glEnableVertexAttribArray(mCubeStereoNormalParam);
+        GLES20.glEnableVertexAttribArray(mCubeStereoColorParam);
+
+        checkGLError("Cube stereo program params");
+
+        mFloorStereoProgram = GLES20.glCreateProgram();
+        GLES20.glAttachShader(mFloorStereoProgram, vertexShader);
+        GLES20.glAttachShader(mFloorStereoProgram, gridShader);
+        GLES20.glLinkProgram(mFloorStereoProgram);
+        GLES20.glUseProgram(mFloorStereoProgram);
+
+        checkGLError("Floor stereo program");
+
+        mFloorStereoModelParam = GLES20.glGetUniformLocation(mFloorStereoProgram, "u_Model");
+        mFloorStereoModelViewParam = GLES20.glGetUniformLocation(mFloorStereoProgram, "u_MVMatrix");
+        mFloorStereoModelViewProjectionParam =
+                GLES20.glGetUniformLocation(mFloorStereoProgram, "u_MVP");
+        mFloorStereoLightPosParam = GLES20.glGetUniformLocation(mFloorStereoProgram, "u_LightPos");
+        mFloorStereoEyeClipTransformParam =
+                GLES20.glGetUniformLocation(mFloorStereoProgram, "u_EyeClipTransform");
+
+        mFloorStereoPositionParam = GLES20.glGetAttribLocation(mFloorStereoProgram, "a_Position");
+        mFloorStereoNormalParam = GLES20.glGetAttribLocation(mFloorStereoProgram, "a_Normal");
+        mFloorStereoColorParam = GLES20.glGetAttribLocation(mFloorStereoProgram, "a_Color");
+
+        GLES20.glEnableVertexAttribArray(mFloorStereoPositionParam);
+        GLES20.glEnableVertexAttribArray(mFloorStereoNormalParam);
+        GLES20.glEnableVertexAttribArray(mFloorStereoColorParam);
+
+        checkGLError("Floor stereo program params");
+    }
+
     /**
      * Converts a raw text file into a string.
      *
@@ -335,14 +444,32 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
     }
 
     /**
-     * Prepares OpenGL ES before we draw a frame.
+     * Required by {@link CardboardView.StereoRenderer}, but not called: CardboardView delivers
+     * {@link #onNewFrame(HeadTransform, FrameInfo)} to timed renderers instead. Renderers that do
+     * not extend another class can extend {@link CardboardView.TimedStereoRendererAdapter}.
      *
      * @param headTransform The head transformation in the new frame.
      */
     @Override
     public void onNewFrame(HeadTransform headTransform) {
+        updateScene(headTransform, TIME_DELTA);
+    }
+
+    /**
+     * Prepares OpenGL ES before we draw a frame, advancing the cube by the measured frame time so
+     * its speed does not depend on the frame rate.
+     *
+     * @param headTransform The head transformation in the new frame.
+     * @param frameInfo Timing information for the new frame.
+     */
+    @Override
+    public void onNewFrame(HeadTransform headTransform, FrameInfo frameInfo) {
+        updateScene(headTransform, DEGREES_PER_SECOND * frameInfo.getFrameDeltaNanos() / 1.0e9f);
+    }
+
+    private void updateScene(HeadTransform headTransform, float angle) {
         // Build the Model part of the ModelView matrix.
-        Matrix.rotateM(mModelCube, 0, TIME_DELTA, 0.5f, 0.5f, 1.0f);
+        Matrix.rotateM(mModelCube, 0, angle, 0.5f, 0.5f, 1.0f);
 
         // Build the camera matrix and apply it to the ModelView.
         Matrix.setLookAtM(mCamera, 0, 0.0f, 0.0f, CAMERA_Z, 0.0f, 0.0f, 0.0f, 0.0f, 1.0f, 0.0f);
@@ -383,6 +510,51 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
         drawFloor();
     }
 
+    /**
+     * Draws both eyes in a single pass.
+     *
+     * Only called when {@link CardboardView#isSinglePassStereoSupported()} is true. The viewport
+     * and scissor already cover both eyes, so one clear and one instanced draw call per object
+     * replace the two passes of {@link #onDrawEye}.
+     *
+     * @param leftEye The left eye to render.
+     * @param rightEye The right eye to render.
+     */
+    @Override
+    public void onDrawEyes(Eye leftEye, Eye rightEye) {
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+
+        checkGLError("mColorParam");
+
+        SinglePassStereo.getEyeClipTransforms(leftEye.getViewport(), rightEye.getViewport(),
+                mEyeClipTransforms, 0);
+        updateStereoEyeMatrices(leftEye, 0);
+        updateStereoEyeMatrices(rightEye, 1);
+
+        drawCubeStereo();
+        drawFloorStereo();
+    }
+
+    /**
+     * Computes the light position and the cube and floor matrices for one eye of the single pass.
+     *
+     * @param eye The eye to compute the matrices for.
+     * @param index The eye's element in the per-eye uniform arrays.
+     */
+    private void updateStereoEyeMatrices(Eye eye, int index) {
+        Matrix.multiplyMM(mView, 0, eye.getEyeView(), 0, mCamera, 0);
+        Matrix.multiplyMV(mLightPosInEyeSpace, 0, mView, 0, LIGHT_POS_IN_WORLD_SPACE, 0);
+        System.arraycopy(mLightPosInEyeSpace, 0, mStereoLightPosInEyeSpace, 3 * index, 3);
+
+        float[] perspective = eye.getPerspective(Z_NEAR, Z_FAR);
+        Matrix.multiplyMM(mStereoCubeModelView, 16 * index, mView, 0, mModelCube, 0);
+        Matrix.multiplyMM(mStereoCubeModelViewProjection, 16 * index, perspective, 0,
+                mStereoCubeModelView, 16 * index);
+        Matrix.multiplyMM(mStereoFloorModelView, 16 * index, mView, 0, mModelFloor, 0);
+        Matrix.multiplyMM(mStereoFloorModelViewProjection, 16 * index, perspective, 0,
+                mStereoFloorModelView, 16 * index);
+    }
+
     @Override
     public void onFinishFrame(Viewport viewport) {
     }
@@ -419,6 +591,31 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
         checkGLError("Drawing cube");
     }
 
+    /**
+     * Draw the cube for both eyes with one instanced draw call.
+     */
+    public void drawCubeStereo() {
+        GLES20.glUseProgram(mCubeStereoProgram);
+
+        GLES20.glUniform3fv(mCubeStereoLightPosParam, EYE_COUNT, mStereoLightPosInEyeSpace, 0);
+        GLES20.glUniformMatrix4fv(mCubeStereoModelParam, 1, false, mModelCube, 0);
+        GLES20.glUniformMatrix4fv(mCubeStereoModelViewParam, EYE_COUNT, false,
+                mStereoCubeModelView, 0);
+        GLES20.glUniformMatrix4fv(mCubeStereoModelViewProjectionParam, EYE_COUNT, false,
+                mStereoCubeModelViewProjection, 0);
+        GLES20.glUniform4fv(mCubeStereoEyeClipTransformParam, EYE_COUNT, mEyeClipTransforms, 0);
+
+        GLES20.glVertexAttribPointer(mCubeStereoPositionParam, COORDS_PER_VERTEX, GLES20.GL_FLOAT,
+                false, 0, mCubeVertices);
+        GLES20.glVertexAttribPointer(mCubeStereoNormalParam, 3, GLES20.GL_FLOAT, false, 0,
+                mCubeNormals);
+        GLES20.glVertexAttribPointer(mCubeStereoColorParam, 4, GLES20.GL_FLOAT, false, 0,
+                isLookingAtObject() ? mCubeFoundColors : mCubeColors);
+
+        GLES30.glDrawArraysInstanced(GLES20.GL_TRIANGLES, 0, 36, EYE_COUNT);
+        checkGLError("Drawing cube stereo");
+    }
+
     /**
      * Draw the floor.
      *
@@ -446,6 +643,32 @@ public class MainActivity extends CardboardActivity implements CardboardView.Ste
         checkGLError("drawing floor");
     }
 
+    /**
+     * Draw the floor for both eyes with one instanced draw call.
+     */
+    public void drawFloorStereo() {
+        GLES20.glUseProgram(mFloorStereoProgram);
+
+        GLES20.glUniform3fv(mFloorStereoLightPosParam, EYE_COUNT, mStereoLightPosInEyeSpace, 0);
+        GLES20.glUniformMatrix4fv(mFloorStereoModelParam, 1, false, mModelFloor, 0);
+        GLES20.glUniformMatrix4fv(mFloorStereoModelViewParam, EYE_COUNT, false,
+                mStereoFloorModelView, 0);
+        GLES20.glUniformMatrix4fv(mFloorStereoModelViewProjectionParam, EYE_COUNT, false,
+                mStereoFloorModelViewProjection, 0);
+        GLES20.glUniform4fv(mFloorStereoEyeClipTransformParam, EYE_COUNT, mEyeClipTransforms, 0);
+
+        GLES20.glVertexAttribPointer(mFloorStereoPositionParam, COORDS_PER_VERTEX, GLES20.GL_FLOAT,
+                false, 0, mFloorVertices);
+        GLES20.glVertexAttribPointer(mFloorStereoNormalParam, 3, GLES20.GL_FLOAT, false, 0,
+                mFloorNormals);
+        GLES20.glVertexAttribPointer(mFloorStereoColorParam, 4, GLES20.GL_FLOAT, false, 0,
+                mFloorColors);
+
+        GLES30.glDrawArraysInstanced(GLES20.GL_TRIANGLES, 0, 6, EYE_COUNT);
+
+        checkGLError("drawing floor stereo");
+    }
+
     /**
      * Called when the Cardboard trigger is pulled.
      */
@@ -0,0 +1,21 @@
+#version 300 es
+precision mediump float;
+in vec4 v_Color;
+in vec3 v_Grid;
+in vec4 v_EyeClip;
+out vec4 fragColor;
+
+void main() {
+    if (any(lessThan(v_EyeClip, vec4(0.0)))) {
+        discard;
+    }
+
+    float depth = gl_FragCoord.z / gl_FragCoord.w; // Calculate world-space distance.
+
+    if ((mod(abs(v_Grid.x), 10.0) < 0.1) || (mod(abs(v_Grid.z), 10.0) < 0.1)) {
+        fragColor = max(0.0, (90.0-depth) / 90.0) * vec4(1.0, 1.0, 1.0, 1.0)
+                + min(1.0, depth / 90.0) * v_Color;
+    } else {
+        fragColor = v_Color;
+    }
+}
@@ -0,0 +1,36 @@
+#version 300 es
+uniform mat4 u_Model;
+uniform mat4 u_MVP[2];
+uniform mat4 u_MVMatrix[2];
+uniform vec3 u_LightPos[2];
+uniform vec4 u_EyeClipTransform[2];
+
+in vec4 a_Position;
+in vec4 a_Color;
+in vec3 a_Normal;
+
+out vec4 v_Color;
+out vec3 v_Grid;
+out vec4 v_EyeClip;
+
+void main() {
+   v_Grid = vec3(u_Model * a_Position);
+
+   vec3 modelViewVertex = vec3(u_MVMatrix[gl_InstanceID] * a_Position);
+   vec3 modelViewNormal = vec3(u_MVMatrix[gl_InstanceID] * vec4(a_Normal, 0.0));
+
+   float distance = length(u_LightPos[gl_InstanceID] - modelViewVertex);
+   vec3 lightVector = normalize(u_LightPos[gl_InstanceID] - modelViewVertex);
+   float diffuse = max(dot(modelViewNormal, lightVector), 0.5);
+
+   diffuse = diffuse * (1.0 / (1.0 + (0.00001 * distance * distance)));
+   v_Color = a_Color * diffuse;
+
+   // Clip against this eye's half before squeezing it into its part of the viewport.
+   vec4 position = u_MVP[gl_InstanceID] * a_Position;
+   v_EyeClip = vec4(position.w + position.x, position.w - position.x,
+                    position.w + position.y, position.w - position.y);
+   vec4 eyeClipTransform = u_EyeClipTransform[gl_InstanceID];
+   position.xy = position.xy * eyeClipTransform.xy + position.w * eyeClipTransform.zw;
+   gl_Position = position;
+}
@@ -0,0 +1,12 @@
+#version 300 es
+precision mediump float;
+in vec4 v_Color;
+in vec4 v_EyeClip;
+out vec4 fragColor;
+
+void main() {
+    if (any(lessThan(v_EyeClip, vec4(0.0)))) {
+        discard;
+    }
+    fragColor = v_Color;
+}